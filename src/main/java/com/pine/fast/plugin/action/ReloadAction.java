@@ -1,10 +1,25 @@
 package com.pine.fast.plugin.action;
 
+import static java.util.stream.Collectors.toList;
+
 import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.AnActionEvent;
-import com.intellij.openapi.ui.Messages;
-import com.pine.fast.plugin.misc.Icons;
+import com.intellij.openapi.fileChooser.FileChooser;
+import com.intellij.openapi.fileChooser.FileChooserDescriptor;
+import com.intellij.openapi.fileChooser.FileChooserDescriptorFactory;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.pine.fast.plugin.suggestion.service.SuggestionService;
+import java.util.Arrays;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
 
+/**
+ * 选择 `spring-configuration-metadata.json` 格式的自定义配置文件并加入索引，之后文件的修改会自动生效
+ */
 public class ReloadAction extends AnAction {
     public ReloadAction() {
         super("加载自定义配置");
@@ -12,7 +27,31 @@ public class ReloadAction extends AnAction {
 
     @Override
     public void actionPerformed(AnActionEvent e) {
-        Messages.showMessageDialog("功能开发中", "Fast Yaml", Messages.getWarningIcon());
+        Project project = e.getProject();
+        if (project == null) {
+            return;
+        }
+
+        FileChooserDescriptor descriptor = FileChooserDescriptorFactory.createMultipleFilesNoJarsDescriptor()
+                .withFileFilter(file -> "json".equalsIgnoreCase(file.getExtension()))
+                .withTitle("加载自定义配置")
+                .withDescription("选择 spring-configuration-metadata.json 格式的配置文件");
+        VirtualFile[] files = FileChooser.chooseFiles(descriptor, project, null);
+        if (files.length == 0) {
+            return;
+        }
 
+        List<String> filePaths = Arrays.stream(files).map(VirtualFile::getPath).collect(toList());
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, "Fast Yaml: 加载自定义配置", false) {
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                SuggestionService.getInstance(project).loadCustomMetadata(project, filePaths);
+            }
+        });
+    }
+
+    @Override
+    public void update(AnActionEvent e) {
+        e.getPresentation().setEnabled(e.getProject() != null);
     }
 }
@@ -0,0 +1,35 @@
+package com.pine.fast.plugin.persistent;
+
+import lombok.Data;
+
+/**
+ * 项目自定义关键字，与内置元数据的格式一致，同名时覆盖内置的关键字
+ *
+ * @author pine
+ */
+@Data
+public class ProjectKeyword {
+
+    /**
+     * 关键字名称，如 `click.id`，层级配置项以 `.` 分隔，如 `desiredCapabilities.automationName`
+     */
+    private String name;
+    /**
+     * 选中后插入的值，为空时使用 name
+     */
+    private String originalName;
+    private String description;
+    /**
+     * 所属框架，同内置元数据的 type，如 `selenium`、`appium|macaca`
+     */
+    private String type;
+    /**
+     * 是否追加冒号
+     */
+    private Boolean isAppendColon;
+    /**
+     * true 为层级配置项(与 desiredCapabilities 相同)，false 为简单关键字
+     */
+    private boolean property;
+
+}
@@ -4,7 +4,11 @@ import com.intellij.openapi.components.PersistentStateComponent;
 import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.components.State;
 import com.intellij.openapi.components.Storage;
+import com.intellij.openapi.project.Project;
 import com.intellij.util.xmlb.XmlSerializerUtil;
+import com.pine.fast.plugin.suggestion.service.SuggestionService;
+import java.util.ArrayList;
+import java.util.List;
 import org.jetbrains.annotations.Nullable;
 
 /**
@@ -25,14 +29,33 @@ import org.jetbrains.annotations.Nullable;
  * @Storage注解的roamingType参数指定可漫游类型，需要启用Settings Repository插件。
  *
  * https://www.cnblogs.com/kancy/p/10654569.html
+ * <p>
+ * 项目级服务，保存在项目的 .idea/ServerPersistent.xml 中，可随项目共享。其中的自定义关键字作为覆盖层叠加在索引之上
  */
 @State(name = "config", storages = {@Storage(value = "ServerPersistent.xml")})
 public class ServerPersistent implements PersistentStateComponent<ServiceConfig> {
 
+    private final Project project;
     private ServiceConfig serviceConfig = new ServiceConfig();
 
-    public static ServerPersistent getInstance() {
-        return ServiceManager.getService(ServerPersistent.class);
+    public ServerPersistent(Project project) {
+        this.project = project;
+    }
+
+    public static ServerPersistent getInstance(Project project) {
+        return ServiceManager.getService(project, ServerPersistent.class);
+    }
+
+    public List<ProjectKeyword> getKeywords() {
+        return new ArrayList<>(serviceConfig.getKeywords());
+    }
+
+    /**
+     * 保存项目自定义关键字，并在后台更新索引
+     */
+    public void setKeywords(List<ProjectKeyword> keywords) {
+        serviceConfig.setKeywords(new ArrayList<>(keywords));
+        SuggestionService.getInstance(project).reloadProjectKeywords(project);
     }
 
 
@@ -55,6 +78,8 @@ public class ServerPersistent implements PersistentStateComponent<ServiceConfig>
     @Override
     public void loadState(ServiceConfig state) {
         XmlSerializerUtil.copyBean(state, serviceConfig);
+        // 如版本控制更新了 ServerPersistent.xml，需要重新应用关键字
+        SuggestionService.getInstance(project).reloadProjectKeywords(project);
     }
 
     @Override
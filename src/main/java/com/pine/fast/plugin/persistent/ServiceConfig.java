@@ -1,5 +1,7 @@
 package com.pine.fast.plugin.persistent;
 
+import java.util.ArrayList;
+import java.util.List;
 import lombok.Data;
 
 @Data
@@ -7,4 +9,9 @@ public class ServiceConfig {
 
     private Boolean hint;
 
+    /**
+     * 项目自定义关键字，叠加在内置及依赖中的元数据之上
+     */
+    private List<ProjectKeyword> keywords = new ArrayList<>();
+
 }
@@ -17,6 +17,12 @@ public class SystemConfig {
 
     private final static String IS_HINT_KEY = PROJECT_NAME + "isHint";
 
+    private final static String MAX_MODULE_INDEXES_KEY = PROJECT_NAME + "maxModuleIndexes";
+
+    private final static int DEFAULT_MAX_MODULE_INDEXES = 8;
+
+    private final static String SEARCH_BUDGET_MILLIS_KEY = PROJECT_NAME + "searchBudgetMillis";
+
     public static Boolean getHint() {
         // 直接存储 boolean 类型会有默认值，默认值一样时不会设置
         String value = PROPERTIES_COMPONENT.getValue(IS_HINT_KEY, "True");
@@ -27,4 +33,26 @@ public class SystemConfig {
         Boolean hint = getHint();
         PROPERTIES_COMPONENT.setValue(IS_HINT_KEY, BooleanUtils.toStringTrueFalse(!hint));
     }
+
+    /**
+     * 每个项目最多保留的模块索引数，超出时淘汰最久未使用的
+     */
+    public static int getMaxModuleIndexes() {
+        return Math.max(1, PROPERTIES_COMPONENT.getInt(MAX_MODULE_INDEXES_KEY, DEFAULT_MAX_MODULE_INDEXES));
+    }
+
+    public static void setMaxModuleIndexes(int maxModuleIndexes) {
+        PROPERTIES_COMPONENT.setValue(MAX_MODULE_INDEXES_KEY, maxModuleIndexes, DEFAULT_MAX_MODULE_INDEXES);
+    }
+
+    /**
+     * 单次补全查询的时间预算(毫秒)，超出时返回已找到的结果，默认 0 即不限制
+     */
+    public static int getSearchBudgetMillis() {
+        return PROPERTIES_COMPONENT.getInt(SEARCH_BUDGET_MILLIS_KEY, 0);
+    }
+
+    public static void setSearchBudgetMillis(int searchBudgetMillis) {
+        PROPERTIES_COMPONENT.setValue(SEARCH_BUDGET_MILLIS_KEY, searchBudgetMillis, 0);
+    }
 }
\ No newline at end of file
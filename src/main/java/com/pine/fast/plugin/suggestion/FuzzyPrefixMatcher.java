@@ -0,0 +1,133 @@
+package com.pine.fast.plugin.suggestion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SortedMap;
+import javax.annotation.Nullable;
+import org.apache.commons.collections4.Trie;
+
+/**
+ * 容错匹配：前缀/包含匹配都没有结果时，查找与输入相差少量编辑(增、删、改、相邻交换)的 key，如 {@code clcik} -> {@code click}
+ * <p>
+ * Runs a Levenshtein automaton over the keys of an existing trie. The trie is walked one character at a time, each
+ * step computes the next row of the (optimal string alignment) distance matrix between the query & the prefix walked
+ * so far. A branch is abandoned as soon as no cell of its row is within the allowed distance, so only prefixes close
+ * to the query are ever visited, independent of the number of keys. Once the whole query is within the distance of a
+ * prefix, every key below that prefix matches, same as for plain prefix matching. Characters are compared ignoring
+ * case
+ * <p>
+ * The characters following a prefix are enumerated through {@link SortedMap#tailMap} lookups, the trie iterates its
+ * keys in lexicographic order, so the first key from {@code prefix + c} tells the next character after {@code c}
+ *
+ * @author pine
+ */
+public final class FuzzyPrefixMatcher {
+
+    /**
+     * Shorter queries are too ambiguous for a single edit to be meaningful
+     */
+    static final int MIN_QUERY_LENGTH = 3;
+    /**
+     * Queries at least this long are allowed two edits, shorter ones a single edit
+     */
+    static final int TWO_EDITS_QUERY_LENGTH = 7;
+
+    private FuzzyPrefixMatcher() {
+    }
+
+    /**
+     * @param trie  trie whose keys are searched
+     * @param query text the user typed
+     * @return keys starting with a prefix within the allowed distance of {@code query}, empty if the query is too
+     * short or the search runs out of time
+     */
+    public static List<String> keysWithinDistance(Trie<String, ?> trie, String query) {
+        List<String> keys = new ArrayList<>();
+        if (query.length() < MIN_QUERY_LENGTH || trie.isEmpty()) {
+            return keys;
+        }
+        int maxDistance = query.length() >= TWO_EDITS_QUERY_LENGTH ? 2 : 1;
+        int[] firstRow = new int[query.length() + 1];
+        for (int i = 0; i < firstRow.length; i++) {
+            firstRow[i] = i;
+        }
+        List<String> matchedPrefixes = new ArrayList<>();
+        visitChildren(trie, "", query, maxDistance, firstRow, null, matchedPrefixes);
+        for (String prefix : matchedPrefixes) {
+            keys.addAll(trie.prefixMap(prefix).keySet());
+        }
+        return keys;
+    }
+
+    private static void visitChildren(Trie<String, ?> trie, String prefix, String query, int maxDistance,
+                                      int[] row, @Nullable int[] previousRow, List<String> matchedPrefixes) {
+        String from = prefix;
+        while (!SearchBudget.outOfTime()) {
+            String key = firstKeyFrom(trie, from);
+            if (key == null || !key.startsWith(prefix)) {
+                return;
+            }
+            if (key.length() == prefix.length()) {
+                // the prefix is a key itself, continue with the keys below it. The trie compares keys bitwise & cannot
+                // tell a trailing NUL from the end of the key, names never contain one
+                from = prefix + (char) (Character.MIN_VALUE + 1);
+                continue;
+            }
+            char c = key.charAt(prefix.length());
+            visit(trie, prefix + c, query, maxDistance, row, previousRow, matchedPrefixes);
+            if (c == Character.MAX_VALUE) {
+                return;
+            }
+            from = prefix + (char) (c + 1);
+        }
+    }
+
+    /**
+     * @param prefix      prefix to visit, {@code row} belongs to the prefix without its last character
+     * @param previousRow row of the prefix without its last two characters, null at the top level
+     */
+    private static void visit(Trie<String, ?> trie, String prefix, String query, int maxDistance, int[] row,
+                              @Nullable int[] previousRow, List<String> matchedPrefixes) {
+        int depth = prefix.length();
+        char c = prefix.charAt(depth - 1);
+        int[] nextRow = new int[row.length];
+        nextRow[0] = depth;
+        int rowMinimum = nextRow[0];
+        for (int i = 1; i < nextRow.length; i++) {
+            int substitution = row[i - 1] + (equalsIgnoreCase(query.charAt(i - 1), c) ? 0 : 1);
+            int distance = Math.min(substitution, Math.min(row[i] + 1, nextRow[i - 1] + 1));
+            if (previousRow != null && i > 1 && equalsIgnoreCase(query.charAt(i - 1), prefix.charAt(depth - 2))
+                    && equalsIgnoreCase(query.charAt(i - 2), c)) {
+                distance = Math.min(distance, previousRow[i - 2] + 1);
+            }
+            nextRow[i] = distance;
+            rowMinimum = Math.min(rowMinimum, distance);
+        }
+
+        if (nextRow[nextRow.length - 1] <= maxDistance) {
+            matchedPrefixes.add(prefix);
+        } else if (rowMinimum <= maxDistance) {
+            visitChildren(trie, prefix, query, maxDistance, nextRow, row, matchedPrefixes);
+        }
+    }
+
+    /**
+     * Size & emptiness of a tail view are computed by iterating it, only the first key is a single lookup
+     *
+     * @return smallest key not less than {@code from}, null if there is none
+     */
+    @Nullable
+    private static String firstKeyFrom(Trie<String, ?> trie, String from) {
+        try {
+            return trie.tailMap(from).firstKey();
+        } catch (NoSuchElementException e) {
+            return null;
+        }
+    }
+
+    private static boolean equalsIgnoreCase(char a, char b) {
+        return a == b || Character.toLowerCase(a) == Character.toLowerCase(b);
+    }
+
+}
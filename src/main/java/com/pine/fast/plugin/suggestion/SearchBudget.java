@@ -0,0 +1,92 @@
+package com.pine.fast.plugin.suggestion;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 单次查询的时间预算。超出预算后遍历停止，返回已找到的结果
+ * <p>
+ * The deadline is bound to the searching thread, so the recursive walk over the nodes does not have to pass it along.
+ * {@link #outOfTime()} is meant to be called once per visited node, it also stops the walk with a
+ * {@link com.intellij.openapi.progress.ProcessCanceledException} as soon as the completion is cancelled, e.g because
+ * the user typed the next character. Parts of a search that run on other threads have to be bound to it through
+ * {@link #bindToCurrentSearch(Function)}
+ *
+ * @author pine
+ */
+public final class SearchBudget {
+
+    private static final ThreadLocal<Long> DEADLINE_NANOS = new ThreadLocal<>();
+
+    private SearchBudget() {
+    }
+
+    /**
+     * @param budgetMillis time the search may take, no limit if not positive
+     * @param search       search to run on the calling thread
+     * @return result of the search, possibly partial if it ran out of time
+     */
+    public static <T> T withBudget(long budgetMillis, Supplier<T> search) {
+        if (budgetMillis <= 0) {
+            return search.get();
+        }
+        Long outerDeadline = DEADLINE_NANOS.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        // a nested search never gets more time than the enclosing one
+        DEADLINE_NANOS.set(outerDeadline != null ? Math.min(outerDeadline, deadline) : deadline);
+        try {
+            return search.get();
+        } finally {
+            if (outerDeadline != null) {
+                DEADLINE_NANOS.set(outerDeadline);
+            } else {
+                DEADLINE_NANOS.remove();
+            }
+        }
+    }
+
+    /**
+     * @return {@code task} bound to the search running on the calling thread, i.e it observes the same cancellation &
+     * deadline on whichever thread it runs
+     */
+    public static <T, R> Function<T, R> bindToCurrentSearch(Function<T, R> task) {
+        Long deadline = DEADLINE_NANOS.get();
+        // outside the IDE, e.g in tests, there is no progress to bind to
+        ProgressIndicator indicator =
+                ApplicationManager.getApplication() != null ? ProgressManager.getInstance().getProgressIndicator() : null;
+        return input -> {
+            Long previousDeadline = DEADLINE_NANOS.get();
+            if (deadline != null) {
+                DEADLINE_NANOS.set(deadline);
+            } else {
+                DEADLINE_NANOS.remove();
+            }
+            try {
+                return indicator != null ? ProgressManager.getInstance().runProcess(() -> task.apply(input), indicator)
+                        : task.apply(input);
+            } finally {
+                if (previousDeadline != null) {
+                    DEADLINE_NANOS.set(previousDeadline);
+                } else {
+                    DEADLINE_NANOS.remove();
+                }
+            }
+        };
+    }
+
+    /**
+     * Checks for cancellation first, throws if the completion was cancelled
+     *
+     * @return true if the search ran out of time & should return what it found so far
+     */
+    public static boolean outOfTime() {
+        ProgressManager.checkCanceled();
+        Long deadline = DEADLINE_NANOS.get();
+        return deadline != null && System.nanoTime() - deadline > 0;
+    }
+
+}
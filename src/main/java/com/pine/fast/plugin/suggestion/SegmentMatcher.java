@@ -0,0 +1,226 @@
+package com.pine.fast.plugin.suggestion;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import org.apache.commons.collections4.Trie;
+import org.apache.commons.collections4.trie.PatriciaTrie;
+
+/**
+ * 路径段匹配索引：忽略大小写的前缀匹配 + 驼峰/单词首字母缩写匹配，如 {@code ifios} -> {@code ifiOS}，{@code dC} -> {@code desiredCapabilities}
+ * <p>
+ * Each segment is stored twice, under its case folded sanitised name & under the initials of the words of its original
+ * name (words are split at `-`, `_` & camel humps, e.g {@code server-port} & {@code serverPort} are both {@code sp}).
+ * Both keys are followed by a separator & the name, so segments that fold to the same key do not replace each other.
+ * A query segment matches, if its case folded form is a prefix of the folded name, or if its humps are prefixes of
+ * the leading words of the original name. Query humps start at upper cased characters ({@code dC}, {@code desCap}), a
+ * query without upper cased characters after the first one is read as initials only ({@code sp}). Both are prefix
+ * lookups on a trie, only humps longer than one character need to be compared against the words of the candidates
+ * <p>
+ * Not thread safe, the tries are only modified while the segments are added to the index
+ *
+ * @param <V> value a segment stands for
+ * @author pine
+ */
+public class SegmentMatcher<V> {
+
+    private static final char SEPARATOR = '\u0000';
+
+    /**
+     * Case folded name + separator + name -> value
+     */
+    private final Trie<String, V> foldedTrie;
+    /**
+     * Initials + separator + original name -> value
+     */
+    private final Trie<String, V> initialsTrie;
+
+    public SegmentMatcher() {
+        this.foldedTrie = new PatriciaTrie<>();
+        this.initialsTrie = new PatriciaTrie<>();
+    }
+
+    /**
+     * @param base matcher to copy, it is never modified
+     */
+    public SegmentMatcher(SegmentMatcher<V> base) {
+        this.foldedTrie = new PatriciaTrie<>(base.foldedTrie);
+        this.initialsTrie = new PatriciaTrie<>(base.initialsTrie);
+    }
+
+    /**
+     * @param name         sanitised name
+     * @param originalName name as it appears in the metadata
+     */
+    public void put(String name, String originalName, V value) {
+        foldedTrie.put(fold(name) + SEPARATOR + name, value);
+        initialsTrie.put(initials(originalName) + SEPARATOR + originalName, value);
+    }
+
+    /**
+     * @param name         sanitised name the value was put with
+     * @param originalName original name the value was put with
+     */
+    public void remove(String name, String originalName) {
+        foldedTrie.remove(fold(name) + SEPARATOR + name);
+        initialsTrie.remove(initials(originalName) + SEPARATOR + originalName);
+    }
+
+    public int size() {
+        return foldedTrie.size();
+    }
+
+    public Collection<V> values() {
+        return foldedTrie.values();
+    }
+
+    /**
+     * @param querySegment sanitised query segment
+     * @return values of all segments matching {@code querySegment}, all values if it is empty
+     */
+    public Collection<V> matching(String querySegment) {
+        if (querySegment.isEmpty()) {
+            return foldedTrie.values();
+        }
+        Collection<V> foldedMatches = foldedTrie.prefixMap(fold(querySegment)).values();
+        // a single character is its own initial, the initials match exactly the same segments
+        if (querySegment.length() == 1) {
+            return foldedMatches;
+        }
+        List<String> humps = humps(querySegment);
+        SortedMap<String, V> initialsMatches = initialsTrie.prefixMap(initialsOf(humps));
+        if (initialsMatches.isEmpty()) {
+            return foldedMatches;
+        }
+
+        boolean compareWords = humps.stream().anyMatch(hump -> hump.length() > 1);
+        Set<V> matches = Collections.newSetFromMap(new IdentityHashMap<>());
+        matches.addAll(foldedMatches);
+        for (Map.Entry<String, V> entry : initialsMatches.entrySet()) {
+            if (!compareWords || humpsMatch(humps, originalNameOf(entry.getKey()))) {
+                matches.add(entry.getValue());
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Same predicate as {@link #matching(String)}, for a single segment
+     */
+    public static boolean matches(String querySegment, String name, String originalName) {
+        if (fold(name).startsWith(fold(querySegment))) {
+            return true;
+        }
+        if (querySegment.length() == 1) {
+            return false;
+        }
+        List<String> humps = humps(querySegment);
+        return initials(originalName).startsWith(initialsOf(humps)) && humpsMatch(humps, originalName);
+    }
+
+    public static String fold(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return case folded first characters of the words of {@code originalName}
+     */
+    static String initials(String originalName) {
+        StringBuilder builder = new StringBuilder();
+        for (String word : words(originalName)) {
+            builder.append(Character.toLowerCase(word.charAt(0)));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Splits at `-`, `_`, spaces & camel humps. A run of upper cased characters is a single word, except for its last
+     * character if a lower cased one follows, i.e {@code ifiOS} -> ifi, OS & {@code XMLParser} -> XML, Parser
+     */
+    static List<String> words(String originalName) {
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i < originalName.length(); i++) {
+            char c = originalName.charAt(i);
+            if (c == '-' || c == '_' || Character.isWhitespace(c)) {
+                if (start != -1) {
+                    words.add(originalName.substring(start, i));
+                    start = -1;
+                }
+                continue;
+            }
+            if (start == -1) {
+                start = i;
+            } else if (Character.isUpperCase(c)) {
+                char previous = originalName.charAt(i - 1);
+                boolean nextIsLower = i + 1 < originalName.length()
+                        && Character.isLowerCase(originalName.charAt(i + 1));
+                if (!Character.isUpperCase(previous) || nextIsLower) {
+                    words.add(originalName.substring(start, i));
+                    start = i;
+                }
+            }
+        }
+        if (start != -1) {
+            words.add(originalName.substring(start));
+        }
+        return words;
+    }
+
+    /**
+     * @return humps starting at each upper cased character, or every character on its own if there is none after the
+     * first character
+     */
+    private static List<String> humps(String querySegment) {
+        List<String> humps = new ArrayList<>();
+        int start = 0;
+        for (int i = 1; i < querySegment.length(); i++) {
+            if (Character.isUpperCase(querySegment.charAt(i))) {
+                humps.add(querySegment.substring(start, i));
+                start = i;
+            }
+        }
+        if (start == 0) {
+            humps.clear();
+            for (int i = 0; i < querySegment.length(); i++) {
+                humps.add(querySegment.substring(i, i + 1));
+            }
+        } else {
+            humps.add(querySegment.substring(start));
+        }
+        return humps;
+    }
+
+    private static String initialsOf(List<String> humps) {
+        StringBuilder builder = new StringBuilder();
+        for (String hump : humps) {
+            builder.append(Character.toLowerCase(hump.charAt(0)));
+        }
+        return builder.toString();
+    }
+
+    private static boolean humpsMatch(List<String> humps, String originalName) {
+        List<String> words = words(originalName);
+        if (words.size() < humps.size()) {
+            return false;
+        }
+        for (int i = 0; i < humps.size(); i++) {
+            String hump = humps.get(i);
+            if (!words.get(i).regionMatches(true, 0, hump, 0, hump.length())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String originalNameOf(String initialsKey) {
+        return initialsKey.substring(initialsKey.indexOf(SEPARATOR) + 1);
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.pine.fast.plugin.suggestion.component;
+
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.pine.fast.plugin.suggestion.SuggestionNode;
+import com.pine.fast.plugin.suggestion.index.SearchIndexChange;
+import com.pine.fast.plugin.suggestion.index.SearchIndexListener;
+import com.pine.fast.plugin.suggestion.index.SuggestionIndexBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import org.jetbrains.yaml.YAMLUtil;
+import org.jetbrains.yaml.psi.YAMLFile;
+import org.jetbrains.yaml.psi.YAMLKeyValue;
+
+/**
+ * 索引变化后，只对打开的、使用了受影响 key 的 yaml 文件重新高亮
+ *
+ * @author pine
+ */
+public class AffectedFilesRehighlighter implements SearchIndexListener {
+
+    private final Project project;
+
+    public AffectedFilesRehighlighter(Project project) {
+        this.project = project;
+    }
+
+    @Override
+    public void searchIndexChanged(SearchIndexChange change) {
+        // 在发布索引的线程上只做调度，PSI 在后台读取，不阻塞写操作，只有重新高亮在 EDT 上进行
+        ReadAction.nonBlocking(() -> findAffectedFiles(change))
+                .inSmartMode(project)
+                .expireWith(project)
+                .finishOnUiThread(ModalityState.defaultModalityState(), files -> {
+                    DaemonCodeAnalyzer daemonCodeAnalyzer = DaemonCodeAnalyzer.getInstance(project);
+                    for (PsiFile file : files) {
+                        if (file.isValid()) {
+                            daemonCodeAnalyzer.restart(file);
+                        }
+                    }
+                })
+                .submit(AppExecutorUtil.getAppExecutorService());
+    }
+
+    /**
+     * Runs in a read action that is restarted whenever a write action comes in
+     */
+    private List<PsiFile> findAffectedFiles(SearchIndexChange change) {
+        List<PsiFile> affectedFiles = new ArrayList<>();
+        PsiManager psiManager = PsiManager.getInstance(project);
+        for (VirtualFile openFile : FileEditorManager.getInstance(project).getOpenFiles()) {
+            ProgressManager.checkCanceled();
+            PsiFile file = openFile.isValid() ? psiManager.findFile(openFile) : null;
+            if (file instanceof YAMLFile && isAffected(file, change)) {
+                affectedFiles.add(file);
+            }
+        }
+        return affectedFiles;
+    }
+
+    /**
+     * Keys are matched by their full dotted path, so that a change below {@code a.b} does not rehighlight a file that
+     * only uses {@code a.c}
+     */
+    private static boolean isAffected(PsiFile file, SearchIndexChange change) {
+        if (change.isEverything()) {
+            return true;
+        }
+        for (YAMLKeyValue keyValue : PsiTreeUtil.findChildrenOfType(file, YAMLKeyValue.class)) {
+            ProgressManager.checkCanceled();
+            if (change.affectsSimple(SuggestionNode.sanitise(keyValue.getKeyText()))) {
+                return true;
+            }
+            String[] pathSegments =
+                    SuggestionIndexBuilder.toSanitizedPathSegments(YAMLUtil.getConfigFullName(keyValue));
+            if (change.affects(SuggestionIndexBuilder.toPathKey(pathSegments, pathSegments.length))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+}
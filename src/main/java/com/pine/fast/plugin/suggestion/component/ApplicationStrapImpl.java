@@ -1,18 +1,28 @@
 package com.pine.fast.plugin.suggestion.component;
 
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.startup.StartupActivity;
+import com.pine.fast.plugin.persistent.SystemConfig;
+import com.pine.fast.plugin.suggestion.service.SuggestionService;
+import org.jetbrains.annotations.NotNull;
+
 /**
  * 项目启动时调用，初始化配置，索引等 应尽可能避免在应用程序启动时执行代码，因为这会减慢启动速度。插件代码仅应在打开项目（请参阅Project Open）或用户调用插件的操作时执行。如果无法避免这种情况，请添加订阅AppLifecycleListener主题的侦听器。
  * https://plugins.jetbrains.com/docs/intellij/plugin-components.html#project-open
+ * <p>
+ * 在项目打开后于后台预先构建搜索索引，避免首次补全时在补全线程上同步构建导致卡顿
  *
  * @author pine
  * @date 2021/3/31 12:08 上午.
  */
-public class ApplicationStrapImpl //implements AppLifecycleListener {
-{
-//
-//    @Override
-//    public void appStarted() {
-//        SuggestionService service = ServiceManager.getService(SuggestionService.class);
-//        System.out.println("333333333");
-//    }
+public class ApplicationStrapImpl implements StartupActivity, DumbAware {
+
+    @Override
+    public void runActivity(@NotNull Project project) {
+        if (SystemConfig.getHint()) {
+            SuggestionService.getInstance(project).initSearchIndexInBackground(project);
+        }
+    }
+
 }
@@ -0,0 +1,35 @@
+package com.pine.fast.plugin.suggestion.component;
+
+import static java.util.stream.Collectors.toList;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.pine.fast.plugin.suggestion.service.SuggestionService;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 监听自定义配置文件的变更(修改、删除、新建)，增量更新索引，无需重启 IDE
+ *
+ * @author pine
+ */
+public class CustomMetadataChangeListener implements BulkFileListener {
+
+    private final Project project;
+
+    public CustomMetadataChangeListener(Project project) {
+        this.project = project;
+    }
+
+    @Override
+    public void after(@NotNull List<? extends VFileEvent> events) {
+        if (project.isDisposed()) {
+            return;
+        }
+        // 只做过滤，实际的读取及更新在后台线程进行
+        SuggestionService.getInstance(project)
+                .reloadCustomMetadata(project, events.stream().map(VFileEvent::getPath).collect(toList()));
+    }
+
+}
@@ -0,0 +1,140 @@
+package com.pine.fast.plugin.suggestion.index;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.OrderEnumerator;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.pine.fast.plugin.suggestion.metadata.io.BinaryMetadataReader;
+import com.pine.fast.plugin.suggestion.metadata.io.MetadataCache;
+import gnu.trove.THashSet;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import javax.annotation.Nullable;
+
+/**
+ * 扫描项目所有模块的依赖 jar 及输出目录，查找 `META-INF/spring-configuration-metadata.json`
+ * <p>
+ * Roots are read & parsed in parallel on a bounded pool. The parsed metadata of each root is kept along with the
+ * timestamp & length of its metadata file, so a rescan only reads roots that were added or changed since the last scan.
+ * Parsed metadata is also persisted through {@link MetadataCache}, so an IDE restart does not parse unchanged jars again
+ *
+ * @author pine
+ */
+public class ClasspathMetadataScanner {
+
+    private static final Logger log = Logger.getInstance(ClasspathMetadataScanner.class);
+
+    public static final String METADATA_FILE = "META-INF/spring-configuration-metadata.json";
+
+    /**
+     * Parsing is mostly IO bound for small files, but large metadata (e.g spring-boot-autoconfigure) is CPU bound, so
+     * dont take more than a few cores away from the IDE
+     */
+    private static final int MAX_PARALLELISM = 4;
+
+    private final MetadataCache metadataCache;
+    private final ExecutorService executor = AppExecutorUtil.createBoundedApplicationPoolExecutor(
+            "FastYaml Metadata Scanner", Math.min(MAX_PARALLELISM, Runtime.getRuntime().availableProcessors()));
+    /**
+     * Root path -> metadata read from that root during an earlier scan
+     */
+    private final Map<String, ScannedRoot> pathToScannedRoot = new ConcurrentHashMap<>();
+
+    public ClasspathMetadataScanner(MetadataCache metadataCache) {
+        this.metadataCache = metadataCache;
+    }
+
+    /**
+     * @return root path -> metadata in {@link BinaryMetadataReader} format, in classpath order. Roots without metadata
+     * & roots whose metadata could not be read are left out
+     */
+    public Map<String, ByteBuffer> scan(Project project) {
+        VirtualFile[] roots =
+                ReadAction.compute(() -> OrderEnumerator.orderEntries(project).withoutSdk().classes().getRoots());
+
+        List<Future<ScannedRoot>> futures = new ArrayList<>(roots.length);
+        Set<String> rootPaths = new THashSet<>();
+        for (VirtualFile root : roots) {
+            rootPaths.add(root.getPath());
+            futures.add(executor.submit(() -> scan(root)));
+        }
+
+        Map<String, ByteBuffer> rootPathToMetadata = new LinkedHashMap<>();
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                ScannedRoot scannedRoot = futures.get(i).get();
+                if (scannedRoot != null) {
+                    rootPathToMetadata.put(roots[i].getPath(), scannedRoot.metadata);
+                }
+            } catch (ExecutionException e) {
+                log.warn("Ignoring metadata from " + roots[i].getPath() + " as it could not be read", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        // forget roots that are no longer part of the project
+        pathToScannedRoot.keySet().retainAll(rootPaths);
+        return rootPathToMetadata;
+    }
+
+    /**
+     * @return paths of the classpath roots of {@code module}, including the ones it gets from the modules it depends on.
+     * Matches the keys returned by {@link #scan(Project)}
+     */
+    public static Set<String> rootPathsOf(Module module) {
+        VirtualFile[] roots = ReadAction
+                .compute(() -> OrderEnumerator.orderEntries(module).withoutSdk().recursively().classes().getRoots());
+        Set<String> rootPaths = new THashSet<>(roots.length);
+        for (VirtualFile root : roots) {
+            rootPaths.add(root.getPath());
+        }
+        return rootPaths;
+    }
+
+    @Nullable
+    private ScannedRoot scan(VirtualFile root) throws IOException {
+        VirtualFile metadataFile = root.isValid() ? root.findFileByRelativePath(METADATA_FILE) : null;
+        if (metadataFile == null) {
+            pathToScannedRoot.remove(root.getPath());
+            return null;
+        }
+
+        ScannedRoot previous = pathToScannedRoot.get(root.getPath());
+        if (previous != null && previous.timeStamp == metadataFile.getTimeStamp()
+                && previous.length == metadataFile.getLength()) {
+            return previous;
+        }
+
+        ScannedRoot scannedRoot = new ScannedRoot(metadataFile.getTimeStamp(), metadataFile.getLength(),
+                metadataCache.load(metadataFile.contentsToByteArray()));
+        pathToScannedRoot.put(root.getPath(), scannedRoot);
+        return scannedRoot;
+    }
+
+    private static class ScannedRoot {
+
+        private final long timeStamp;
+        private final long length;
+        private final ByteBuffer metadata;
+
+        ScannedRoot(long timeStamp, long length, ByteBuffer metadata) {
+            this.timeStamp = timeStamp;
+            this.length = length;
+            this.metadata = metadata;
+        }
+    }
+
+}
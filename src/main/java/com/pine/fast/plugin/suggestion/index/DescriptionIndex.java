@@ -0,0 +1,319 @@
+package com.pine.fast.plugin.suggestion.index;
+
+import com.intellij.openapi.diagnostic.Logger;
+import gnu.trove.THashMap;
+import gnu.trove.THashSet;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import org.apache.commons.collections4.Trie;
+import org.apache.commons.collections4.trie.PatriciaTrie;
+
+/**
+ * 关键字描述的全文倒排索引，按用途查找关键字，如输入 {@code 设备} 找到描述为 {@code 设备id} 的 key
+ * <p>
+ * Descriptions are split into tokens: runs of letters & digits are lower cased words, English stopwords (see
+ * {@code /stopwords-en.txt}) & single characters are dropped. Chinese text has no word boundaries, so every run of Han
+ * characters is split into overlapping bigrams ({@code 设备标识} -> 设备, 备标, 标识), a single Han character is kept
+ * as is. Each token is mapped to the simple names & the sanitised property paths whose description contains it
+ * <p>
+ * A description matches a query if it contains every token of the query, the last one as a prefix since the user is
+ * still typing it. The token tries answer the prefix lookups, the posting lists are intersected shortest first
+ * <p>
+ * Layered by container, same as {@link SegmentIndex}: the tokens of a description are all in the layer of the container
+ * it was read from, so postings are intersected within a layer & the candidates of all layers merged. Removing a
+ * container drops its layer. A key whose description was overridden stays listed under its old tokens as well, callers
+ * resolve each candidate against the snapshot & check its current description with {@link #matches}. A derived index
+ * shares the layers of its base & copies a layer, & within it a posting list, only before adding to it
+ *
+ * @author pine
+ */
+public class DescriptionIndex {
+
+    private static final Logger log = Logger.getInstance(DescriptionIndex.class);
+
+    private static final String STOPWORDS_RESOURCE = "/stopwords-en.txt";
+
+    /**
+     * Container -> descriptions read from it
+     */
+    private final Map<String, Layer> containerToLayer;
+    /**
+     * Layers of this index that can be modified in place
+     */
+    private final Set<Layer> ownedLayers = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    DescriptionIndex() {
+        this.containerToLayer = new THashMap<>();
+    }
+
+    /**
+     * @param base index to derive from, it is never modified
+     */
+    DescriptionIndex(DescriptionIndex base) {
+        this.containerToLayer = new THashMap<>(base.containerToLayer);
+    }
+
+    /**
+     * @param containerArchiveOrFileRef file/jar the simple is read from
+     */
+    void addSimple(String containerArchiveOrFileRef, String name, @Nullable String description) {
+        if (description != null) {
+            Layer layer = ownLayer(containerArchiveOrFileRef);
+            layer.add(layer.tokenToSimpleNames, name, description);
+        }
+    }
+
+    /**
+     * @param containerArchiveOrFileRef file/jar the property is read from
+     * @param path                      sanitised dot delimited path of the property
+     */
+    void addProperty(String containerArchiveOrFileRef, String path, @Nullable String description) {
+        if (description != null) {
+            Layer layer = ownLayer(containerArchiveOrFileRef);
+            layer.add(layer.tokenToPropertyPaths, path, description);
+        }
+    }
+
+    /**
+     * Drops every description read from {@code containerArchiveOrFileRef}
+     */
+    void removeContainer(String containerArchiveOrFileRef) {
+        containerToLayer.remove(containerArchiveOrFileRef);
+    }
+
+    /**
+     * @return names of the simples whose description may match {@code query}, possibly including ones whose
+     * description was overridden
+     */
+    public Collection<String> simplesDescribedBy(String query) {
+        List<String> queryTokens = tokenize(query);
+        return candidates(layer -> candidates(layer.tokenToSimpleNames, queryTokens));
+    }
+
+    /**
+     * @return sanitised dot delimited paths of the properties whose description may match {@code query}, possibly
+     * including ones whose description was overridden or that lost a conflict with another node
+     */
+    public Collection<String> propertiesDescribedBy(String query) {
+        List<String> queryTokens = tokenize(query);
+        return candidates(layer -> candidates(layer.tokenToPropertyPaths, queryTokens));
+    }
+
+    /**
+     * @return true if {@code description} contains every token of {@code query}, the last one as a prefix
+     */
+    public static boolean matches(@Nullable String description, String query) {
+        List<String> queryTokens = tokenize(query);
+        if (description == null || queryTokens.isEmpty()) {
+            return false;
+        }
+        Set<String> tokens = new THashSet<>(tokenize(description));
+        int last = queryTokens.size() - 1;
+        for (int i = 0; i < last; i++) {
+            if (!tokens.contains(queryTokens.get(i))) {
+                return false;
+            }
+        }
+        String lastToken = queryTokens.get(last);
+        return tokens.stream().anyMatch(token -> token.startsWith(lastToken));
+    }
+
+    /**
+     * @return tokens of {@code text} in the order they appear, possibly repeated
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            int start = i;
+            if (isHan(text.charAt(i))) {
+                while (i < text.length() && isHan(text.charAt(i))) {
+                    i++;
+                }
+                if (i - start == 1) {
+                    tokens.add(text.substring(start, i));
+                }
+                for (int j = start; j + 2 <= i; j++) {
+                    tokens.add(text.substring(j, j + 2));
+                }
+            } else if (Character.isLetterOrDigit(text.charAt(i))) {
+                while (i < text.length() && Character.isLetterOrDigit(text.charAt(i)) && !isHan(text.charAt(i))) {
+                    i++;
+                }
+                String word = text.substring(start, i).toLowerCase(Locale.ROOT);
+                if (word.length() > 1 && !Stopwords.WORDS.contains(word)) {
+                    tokens.add(word);
+                }
+            } else {
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    private Layer ownLayer(String containerArchiveOrFileRef) {
+        Layer layer = containerToLayer.get(containerArchiveOrFileRef);
+        if (layer == null || !ownedLayers.contains(layer)) {
+            layer = layer != null ? new Layer(layer) : new Layer();
+            ownedLayers.add(layer);
+            containerToLayer.put(containerArchiveOrFileRef, layer);
+        }
+        return layer;
+    }
+
+    /**
+     * @return candidates of all layers merged
+     */
+    private Collection<String> candidates(Function<Layer, Collection<String>> layerCandidates) {
+        List<Collection<String>> matchingLayers = new ArrayList<>();
+        for (Layer layer : containerToLayer.values()) {
+            Collection<String> candidates = layerCandidates.apply(layer);
+            if (!candidates.isEmpty()) {
+                matchingLayers.add(candidates);
+            }
+        }
+        if (matchingLayers.size() <= 1) {
+            return matchingLayers.isEmpty() ? Collections.emptySet() : matchingLayers.get(0);
+        }
+        Set<String> candidates = new THashSet<>();
+        matchingLayers.forEach(candidates::addAll);
+        return candidates;
+    }
+
+    private static Collection<String> candidates(Trie<String, Set<String>> tokenToKeys, List<String> queryTokens) {
+        if (queryTokens.isEmpty()) {
+            return Collections.emptySet();
+        }
+        List<Set<String>> postings = new ArrayList<>(queryTokens.size());
+        int last = queryTokens.size() - 1;
+        for (int i = 0; i < last; i++) {
+            Set<String> keys = tokenToKeys.get(queryTokens.get(i));
+            if (keys == null) {
+                return Collections.emptySet();
+            }
+            postings.add(keys);
+        }
+        // the last token is still being typed, any token starting with it counts
+        Collection<Set<String>> lastTokenPostings = tokenToKeys.prefixMap(queryTokens.get(last)).values();
+        if (lastTokenPostings.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> lastTokenKeys;
+        if (lastTokenPostings.size() == 1) {
+            lastTokenKeys = lastTokenPostings.iterator().next();
+        } else {
+            lastTokenKeys = new THashSet<>();
+            lastTokenPostings.forEach(lastTokenKeys::addAll);
+        }
+        postings.add(lastTokenKeys);
+
+        // iterates over the shortest list & probes the others, shortest first as they reject the most
+        postings.sort(Comparator.comparingInt(Set::size));
+        List<String> candidates = new ArrayList<>();
+        for (String key : postings.get(0)) {
+            boolean inAll = true;
+            for (int i = 1; i < postings.size() && inAll; i++) {
+                inAll = postings.get(i).contains(key);
+            }
+            if (inAll) {
+                candidates.add(key);
+            }
+        }
+        return candidates;
+    }
+
+    private static boolean isHan(char c) {
+        return Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN;
+    }
+
+    /**
+     * Descriptions read from a single container
+     */
+    private static final class Layer {
+
+        private final Trie<String, Set<String>> tokenToSimpleNames;
+        /**
+         * Token -> sanitised dot delimited paths of the properties
+         */
+        private final Trie<String, Set<String>> tokenToPropertyPaths;
+        /**
+         * Sets of this layer that can be modified in place
+         */
+        private final Set<Set<String>> ownedSets = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private Layer() {
+            this.tokenToSimpleNames = new PatriciaTrie<>();
+            this.tokenToPropertyPaths = new PatriciaTrie<>();
+        }
+
+        private Layer(Layer base) {
+            this.tokenToSimpleNames = new PatriciaTrie<>(base.tokenToSimpleNames);
+            this.tokenToPropertyPaths = new PatriciaTrie<>(base.tokenToPropertyPaths);
+        }
+
+        private void add(Trie<String, Set<String>> tokenToKeys, String key, String description) {
+            for (String token : tokenize(description)) {
+                Set<String> keys = own(tokenToKeys.get(token));
+                if (keys.add(key)) {
+                    tokenToKeys.put(token, keys);
+                }
+            }
+        }
+
+        private Set<String> own(Set<String> keys) {
+            if (keys != null && ownedSets.contains(keys)) {
+                return keys;
+            }
+            Set<String> copy = keys != null ? new THashSet<>(keys) : new THashSet<>();
+            ownedSets.add(copy);
+            return copy;
+        }
+
+    }
+
+    /**
+     * Loaded the first time a description is tokenized
+     */
+    private static final class Stopwords {
+
+        static final Set<String> WORDS = load();
+
+        private static Set<String> load() {
+            Set<String> words = new THashSet<>();
+            try (InputStream inputStream = DescriptionIndex.class.getResourceAsStream(STOPWORDS_RESOURCE)) {
+                if (inputStream == null) {
+                    log.warn(STOPWORDS_RESOURCE + " not found, descriptions are indexed without removing stopwords");
+                    return words;
+                }
+                BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (!line.isEmpty()) {
+                        words.add(line.toLowerCase(Locale.ROOT));
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Could not read " + STOPWORDS_RESOURCE + ", descriptions are indexed without removing "
+                        + "stopwords", e);
+            }
+            return words;
+        }
+
+    }
+
+}
@@ -0,0 +1,172 @@
+package com.pine.fast.plugin.suggestion.index;
+
+import com.pine.fast.plugin.suggestion.SegmentMatcher;
+import gnu.trove.THashMap;
+import gnu.trove.THashSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 简单关键字的 n-gram 倒排索引，用于包含匹配(contains)时只校验可能匹配的关键字，而不是逐个扫描全部关键字
+ * <p>
+ * Every n-gram of a keyword name up to {@link #MAX_GRAM} characters long is mapped to the names containing it. A query
+ * of at most {@link #MAX_GRAM} characters is a gram itself, so its posting list is exactly the set of names containing
+ * it. A longer query contains all names that contain each of its trigrams, the intersection of those posting lists is a
+ * superset of the matches & has to be verified. Grams are case folded (see {@link SegmentMatcher#fold}), as contains
+ * matching ignores case
+ * <p>
+ * Layered by container, same as {@link SegmentIndex}: all grams of a name are in the layer of the container it was
+ * read from, so posting lists are intersected within a layer & the candidates of all layers merged. Removing a
+ * container drops its layer. A derived index shares the layers of its base & copies a layer, & within it a posting
+ * list, only before adding to it
+ *
+ * @author pine
+ */
+public class KeywordGramIndex {
+
+    static final int MAX_GRAM = 3;
+
+    /**
+     * Container -> gram -> names of the simples read from the container that contain the gram
+     */
+    private final Map<String, Layer> containerToLayer;
+    /**
+     * Layers of this index that can be modified in place
+     */
+    private final Set<Layer> ownedLayers = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    KeywordGramIndex() {
+        this.containerToLayer = new THashMap<>();
+    }
+
+    /**
+     * @param base index to derive from, it is never modified
+     */
+    KeywordGramIndex(KeywordGramIndex base) {
+        this.containerToLayer = new THashMap<>(base.containerToLayer);
+    }
+
+    /**
+     * @param containerArchiveOrFileRef file/jar the simple is read from
+     */
+    void add(String containerArchiveOrFileRef, String name) {
+        Layer layer = containerToLayer.get(containerArchiveOrFileRef);
+        if (layer == null || !ownedLayers.contains(layer)) {
+            layer = layer != null ? new Layer(layer) : new Layer();
+            ownedLayers.add(layer);
+            containerToLayer.put(containerArchiveOrFileRef, layer);
+        }
+        layer.add(name);
+    }
+
+    /**
+     * Drops every name read from {@code containerArchiveOrFileRef}
+     */
+    void removeContainer(String containerArchiveOrFileRef) {
+        containerToLayer.remove(containerArchiveOrFileRef);
+    }
+
+    /**
+     * @param query non empty text the name must contain, ignoring case
+     * @return names that may contain {@code query}, possibly including ones overridden by a simple of another
+     * container. Exact for queries of at most {@link #MAX_GRAM} characters
+     */
+    public Collection<String> candidatesContaining(String query) {
+        String foldedQuery = SegmentMatcher.fold(query);
+        List<Collection<String>> layerCandidates = new ArrayList<>();
+        for (Layer layer : containerToLayer.values()) {
+            Collection<String> candidates = layer.candidatesContaining(foldedQuery);
+            if (!candidates.isEmpty()) {
+                layerCandidates.add(candidates);
+            }
+        }
+        if (layerCandidates.size() <= 1) {
+            return layerCandidates.isEmpty() ? Collections.emptySet() : layerCandidates.get(0);
+        }
+        Set<String> candidates = new THashSet<>();
+        layerCandidates.forEach(candidates::addAll);
+        return candidates;
+    }
+
+    /**
+     * Names read from a single container
+     */
+    private static final class Layer {
+
+        private final Map<String, Set<String>> gramToNames;
+        /**
+         * Sets of this layer that can be modified in place
+         */
+        private final Set<Set<String>> ownedSets = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private Layer() {
+            this.gramToNames = new THashMap<>();
+        }
+
+        private Layer(Layer base) {
+            this.gramToNames = new THashMap<>(base.gramToNames);
+        }
+
+        private void add(String name) {
+            String folded = SegmentMatcher.fold(name);
+            for (int length = 1; length <= MAX_GRAM; length++) {
+                for (int start = 0; start + length <= folded.length(); start++) {
+                    String gram = folded.substring(start, start + length);
+                    Set<String> names = own(gramToNames.get(gram));
+                    if (names.add(name)) {
+                        gramToNames.put(gram, names);
+                    }
+                }
+            }
+        }
+
+        /**
+         * @param query case folded query
+         */
+        private Collection<String> candidatesContaining(String query) {
+            if (query.length() <= MAX_GRAM) {
+                Set<String> names = gramToNames.get(query);
+                return names != null ? names : Collections.emptySet();
+            }
+            List<Set<String>> postings = new ArrayList<>(query.length() - MAX_GRAM + 1);
+            for (int start = 0; start + MAX_GRAM <= query.length(); start++) {
+                Set<String> names = gramToNames.get(query.substring(start, start + MAX_GRAM));
+                if (names == null) {
+                    return Collections.emptySet();
+                }
+                postings.add(names);
+            }
+            // iterates over the shortest list & probes the others, shortest first as they reject the most
+            postings.sort(Comparator.comparingInt(Set::size));
+            Set<String> shortest = postings.get(0);
+            List<String> candidates = new ArrayList<>();
+            for (String name : shortest) {
+                boolean inAll = true;
+                for (int i = 1; i < postings.size() && inAll; i++) {
+                    inAll = postings.get(i).contains(name);
+                }
+                if (inAll) {
+                    candidates.add(name);
+                }
+            }
+            return candidates;
+        }
+
+        private Set<String> own(Set<String> names) {
+            if (names != null && ownedSets.contains(names)) {
+                return names;
+            }
+            Set<String> copy = names != null ? new THashSet<>(names) : new THashSet<>();
+            ownedSets.add(copy);
+            return copy;
+        }
+
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.pine.fast.plugin.suggestion.index;
+
+import com.pine.fast.plugin.suggestion.metadata.MetadataSuggestionNode;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+
+/**
+ * 完整路径 -> 节点的索引，按版本分层：每个派生版本只记录自己的改动，查找时从最新一层向下查
+ * <p>
+ * Each layer holds the entries put by its version & tombstones for the paths its version removed from the layers
+ * below. A lookup stops at the first layer that has an entry or a tombstone for the path, so deriving a version costs
+ * an empty layer instead of a copy of every path. Layers stay writable after their version is published, as nodes are
+ * registered when a search expands them, which is why both the entries & the tombstones are concurrent
+ * <p>
+ * To keep lookups short, layers are merged as they are derived from, the same way a log structured merge tree merges
+ * its runs: while the top layer holds at least half as many entries & tombstones as the layer below, the two are
+ * merged into a new layer that replaces both. Layer sizes therefore more than double towards the bottom, a lookup probes
+ * O(log N) layers & each entry is copied O(log N) times over all versions. A merge never modifies the layers it reads,
+ * as they are still used by earlier versions. Entries put into them after the merge are not seen by the merged layer,
+ * which is fine, the index is a cache & lookups fall back to a walk from the root on a miss
+ *
+ * @author pine
+ */
+public class PathIndex {
+
+    private final Map<String, MetadataSuggestionNode> entries;
+    /**
+     * Paths removed from the layers below, empty for the bottom layer
+     */
+    private final Set<String> removed;
+    @Nullable
+    private final PathIndex base;
+
+    PathIndex() {
+        this(new ConcurrentHashMap<>(), ConcurrentHashMap.newKeySet(), null);
+    }
+
+    private PathIndex(Map<String, MetadataSuggestionNode> entries, Set<String> removed, @Nullable PathIndex base) {
+        this.entries = entries;
+        this.removed = removed;
+        this.base = base;
+    }
+
+    /**
+     * @param base index to derive from, it is never modified by the derived index
+     * @return empty layer on top of {@code base}, after merging the top layers of {@code base} that hold at least half as
+     * many entries & tombstones as the layer below them
+     */
+    static PathIndex derivedFrom(PathIndex base) {
+        PathIndex top = base;
+        while (top.base != null && top.size() * 2 >= top.base.size()) {
+            top = top.base.mergedWith(top);
+        }
+        return new PathIndex(new ConcurrentHashMap<>(), ConcurrentHashMap.newKeySet(), top);
+    }
+
+    /**
+     * @param path sanitised dot delimited path
+     * @return node registered under {@code path}, null if there is none. A node of an earlier version may still be
+     * registered, callers have to check the node is reachable from the current root
+     */
+    @Nullable
+    public MetadataSuggestionNode get(String path) {
+        for (PathIndex layer = this; layer != null; layer = layer.base) {
+            MetadataSuggestionNode node = layer.entries.get(path);
+            if (node != null) {
+                return node;
+            }
+            if (layer.removed.contains(path)) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    void put(String path, MetadataSuggestionNode node) {
+        entries.put(path, node);
+    }
+
+    /**
+     * Removes {@code path} only if it is still registered to {@code node}, so that a node that replaced it in the
+     * meantime stays in place
+     */
+    void remove(String path, MetadataSuggestionNode node) {
+        if (get(path) != node) {
+            return;
+        }
+        entries.remove(path, node);
+        if (base != null) {
+            removed.add(path);
+        }
+    }
+
+    /**
+     * @return number of layers, including this one
+     */
+    int depth() {
+        return base == null ? 1 : base.depth() + 1;
+    }
+
+    private int size() {
+        return entries.size() + removed.size();
+    }
+
+    /**
+     * @param above layer directly on top of this one
+     * @return new layer equivalent to {@code above} over this one, with the same base as this one
+     */
+    private PathIndex mergedWith(PathIndex above) {
+        Map<String, MetadataSuggestionNode> mergedEntries = new ConcurrentHashMap<>(entries);
+        above.removed.forEach(mergedEntries::remove);
+        mergedEntries.putAll(above.entries);
+        Set<String> mergedRemoved = ConcurrentHashMap.newKeySet();
+        if (base != null) {
+            // a tombstone only matters for the layers below the merged one
+            mergedRemoved.addAll(removed);
+            mergedRemoved.addAll(above.removed);
+            mergedRemoved.removeIf(mergedEntries::containsKey);
+        }
+        return new PathIndex(mergedEntries, mergedRemoved, base);
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.pine.fast.plugin.suggestion.index;
+
+import static java.util.Collections.unmodifiableNavigableSet;
+import static java.util.Collections.unmodifiableSet;
+
+import com.pine.fast.plugin.suggestion.SuggestionNode;
+import com.pine.fast.plugin.suggestion.metadata.MetadataSuggestionNode;
+import gnu.trove.THashSet;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.annotation.Nullable;
+import lombok.Getter;
+import org.apache.commons.collections4.Trie;
+
+/**
+ * 一次索引变化：版本号及受影响的路径
+ * <p>
+ * Versions of a project only ever increase, unlike {@link SearchIndexSnapshot#getVersion()}, which starts over when
+ * the project rebases onto another version of the bundled index. A patch knows the full paths it added or took out
+ * (see {@link SuggestionIndexBuilder#getTouchedPaths()}), so its change is precise. A rebuild is compared with the
+ * previous version instead, which shares every root it did not touch by identity, so the affected paths are root keys
+ * & anything below an affected root may have changed
+ * <p>
+ * A key is affected if an affected path is the key itself, one of its ancestors (e.g the map property the key is
+ * below) or one of its descendants (e.g a property added below the group the key names)
+ *
+ * @author pine
+ */
+@Getter
+public class SearchIndexChange {
+
+    private final long version;
+    /**
+     * True if there is no previous version to compare with, e.g for the first build. Everything may have changed
+     */
+    private final boolean everything;
+    /**
+     * Sanitised dot delimited paths of the properties & groups that were added, removed or changed
+     */
+    private final NavigableSet<String> affectedPaths;
+    /**
+     * Sanitised names of the simple keywords that were added, removed or changed
+     */
+    private final Set<String> affectedSimples;
+
+    private SearchIndexChange(long version, boolean everything, NavigableSet<String> affectedPaths,
+                              Set<String> affectedSimples) {
+        this.version = version;
+        this.everything = everything;
+        this.affectedPaths = unmodifiableNavigableSet(affectedPaths);
+        this.affectedSimples = unmodifiableSet(affectedSimples);
+    }
+
+    /**
+     * @param previous version replaced by {@code next}, null if there is none
+     */
+    public static SearchIndexChange between(long version, @Nullable SearchIndexSnapshot previous,
+                                            SearchIndexSnapshot next) {
+        NavigableSet<String> affectedPaths = new TreeSet<>();
+        Set<String> affectedSimples = new THashSet<>();
+        if (previous == null) {
+            return new SearchIndexChange(version, true, affectedPaths, affectedSimples);
+        }
+        collectChangedKeys(previous.getRootSearchIndex(), next.getRootSearchIndex(), affectedPaths);
+        collectChangedKeys(previous.getSimpleSearchIndex(), next.getSimpleSearchIndex(), affectedSimples);
+        return new SearchIndexChange(version, false, affectedPaths, affectedSimples);
+    }
+
+    /**
+     * @param touchedPaths   sanitised dot delimited paths that were added, removed or changed
+     * @param touchedSimples sanitised names of the simple keywords that were added, removed or changed
+     */
+    public static SearchIndexChange of(long version, Collection<String> touchedPaths,
+                                       Collection<String> touchedSimples) {
+        return new SearchIndexChange(version, false, new TreeSet<>(touchedPaths), new THashSet<>(touchedSimples));
+    }
+
+    private static void collectChangedKeys(Trie<String, MetadataSuggestionNode> previous,
+                                           Trie<String, MetadataSuggestionNode> next, Set<String> changedKeys) {
+        for (Map.Entry<String, MetadataSuggestionNode> entry : next.entrySet()) {
+            if (previous.get(entry.getKey()) != entry.getValue()) {
+                changedKeys.add(SuggestionNode.sanitise(entry.getKey()));
+            }
+        }
+        for (String key : previous.keySet()) {
+            if (!next.containsKey(key)) {
+                changedKeys.add(SuggestionNode.sanitise(key));
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return !everything && affectedPaths.isEmpty() && affectedSimples.isEmpty();
+    }
+
+    /**
+     * @param sanitisedPath sanitised dot delimited path of a key
+     * @return true if the metadata of the key may have changed
+     */
+    public boolean affects(String sanitisedPath) {
+        if (everything || affectedPaths.contains(sanitisedPath)) {
+            return true;
+        }
+        // ancestors
+        for (int i = sanitisedPath.indexOf('.'); i != -1; i = sanitisedPath.indexOf('.', i + 1)) {
+            if (affectedPaths.contains(sanitisedPath.substring(0, i))) {
+                return true;
+            }
+        }
+        // descendants sort right after the path & its delimiter
+        String descendantPrefix = sanitisedPath + '.';
+        String firstDescendant = affectedPaths.ceiling(descendantPrefix);
+        return firstDescendant != null && firstDescendant.startsWith(descendantPrefix);
+    }
+
+    /**
+     * @param sanitisedName sanitised name of a simple keyword
+     * @return true if the simple keyword may have changed
+     */
+    public boolean affectsSimple(String sanitisedName) {
+        return everything || affectedSimples.contains(sanitisedName);
+    }
+
+}
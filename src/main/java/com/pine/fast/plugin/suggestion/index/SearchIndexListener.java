@@ -0,0 +1,20 @@
+package com.pine.fast.plugin.suggestion.index;
+
+import com.intellij.util.messages.Topic;
+
+/**
+ * 搜索索引变化时在项目的 message bus 上发布，订阅者据此只失效受影响的部分
+ * <p>
+ * Events are delivered after the index update lock is released, so a listener never holds up searches or updates. They
+ * are delivered one at a time & in version order, by the thread that published the version or by one that published
+ * a later version. Listeners must return quickly, work that takes longer belongs on another thread
+ *
+ * @author pine
+ */
+public interface SearchIndexListener {
+
+    Topic<SearchIndexListener> TOPIC = Topic.create("FastYaml search index", SearchIndexListener.class);
+
+    void searchIndexChanged(SearchIndexChange change);
+
+}
@@ -0,0 +1,55 @@
+package com.pine.fast.plugin.suggestion.index;
+
+import com.pine.fast.plugin.suggestion.SegmentMatcher;
+import com.pine.fast.plugin.suggestion.metadata.MetadataSuggestionNode;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.apache.commons.collections4.Trie;
+
+/**
+ * 某一版本的搜索索引，发布后不再修改。元数据变化时由 {@link SuggestionIndexBuilder#derivedFrom} 生成新的版本
+ * <p>
+ * A search captures the current snapshot once & reads only from it, so it is never affected by a newer version being
+ * published halfway through. The only state that still changes after publication is the lazy expansion of nodes,
+ * which is safe to be done concurrently (see {@link SuggestionIndexBuilder})
+ *
+ * @author pine
+ */
+@Getter
+@AllArgsConstructor
+public class SearchIndexSnapshot {
+
+    /**
+     * Starts at 1 for a fresh build, incremented by one for each derived snapshot
+     */
+    private final long version;
+    /**
+     * Within the trie, all keys are stored in sanitised format
+     */
+    private final Trie<String, MetadataSuggestionNode> rootSearchIndex;
+    private final Trie<String, MetadataSuggestionNode> simpleSearchIndex;
+    /**
+     * Matches query segments against the keys of the root trie, case insensitive & by camel humps
+     */
+    private final SegmentMatcher<String> rootMatcher;
+    /**
+     * Full sanitised dot delimited path -> node, for exact lookups without walking the trie. A root shared with an
+     * earlier version registers its nodes in the version that deferred its expansion, so a miss has to fall back to a
+     * walk from the root. Nodes shared below a copied root still lead to the original root, a hit only counts if it
+     * leads to the current one
+     */
+    private final PathIndex pathIndex;
+    /**
+     * Sanitised segment -> paths of the nodes below the roots ending with it, for searches that do not match a root
+     */
+    private final SegmentIndex segmentIndex;
+    /**
+     * N-grams of the simples' names -> names, for contains matching without scanning every simple
+     */
+    private final KeywordGramIndex keywordGramIndex;
+    /**
+     * Tokens of the descriptions -> names of the simples & paths of the properties, for finding keys by what they do
+     */
+    private final DescriptionIndex descriptionIndex;
+
+}
@@ -0,0 +1,145 @@
+package com.pine.fast.plugin.suggestion.index;
+
+import com.pine.fast.plugin.suggestion.SegmentMatcher;
+import gnu.trove.THashMap;
+import gnu.trove.THashSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 路径段倒排索引：每个非根节点的路径段 -> 以该段结尾的完整路径，用于顶层 key 没有匹配时直接定位到深层的候选节点
+ * <p>
+ * Segments are looked up through a {@link SegmentMatcher}, the same way the children of a node are matched, so the
+ * paths of all segments matching a query segment are a couple of prefix lookups away. Paths are recorded as metadata
+ * is consumed, before any node is expanded, so the index never forces an expansion
+ * <p>
+ * The index is layered by container: each container's paths are kept apart, so removing a container drops its layer
+ * & with it every path no other container contributes. Paths of properties that lost a conflict with another node are
+ * still listed, callers resolve each path against the snapshot & skip the ones that do not exist
+ * <p>
+ * A derived index shares the layers of its base. Before adding to a layer it copies the layer's map, & a path set only
+ * before adding to that set, the same way {@link SuggestionIndexBuilder#derivedFrom} shares roots. Published indexes
+ * are never modified
+ *
+ * @author pine
+ */
+public class SegmentIndex {
+
+    /**
+     * Container -> paths consumed from it
+     */
+    private final Map<String, Layer> containerToLayer;
+    /**
+     * Layers of this index that can be modified in place
+     */
+    private final Set<Layer> ownedLayers = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    SegmentIndex() {
+        this.containerToLayer = new THashMap<>();
+    }
+
+    /**
+     * @param base index to derive from, it is never modified
+     */
+    SegmentIndex(SegmentIndex base) {
+        this.containerToLayer = new THashMap<>(base.containerToLayer);
+    }
+
+    /**
+     * Records the paths of all nodes below the root on the way to a property
+     *
+     * @param containerArchiveOrFileRef file/jar the property is read from
+     * @param sanitisedPathSegments     sanitised segments of the property name
+     * @param rawPathSegments           segments of the property name as they appear in the metadata
+     */
+    void addPath(String containerArchiveOrFileRef, String[] sanitisedPathSegments, String[] rawPathSegments) {
+        Layer layer = containerToLayer.get(containerArchiveOrFileRef);
+        if (layer == null || !ownedLayers.contains(layer)) {
+            layer = layer != null ? new Layer(layer) : new Layer();
+            ownedLayers.add(layer);
+            containerToLayer.put(containerArchiveOrFileRef, layer);
+        }
+        layer.addPath(sanitisedPathSegments, rawPathSegments);
+    }
+
+    /**
+     * Drops every path consumed from {@code containerArchiveOrFileRef}
+     */
+    void removeContainer(String containerArchiveOrFileRef) {
+        containerToLayer.remove(containerArchiveOrFileRef);
+    }
+
+    /**
+     * @param querySegment sanitised query segment the last segment of a node below a root must match
+     * @return sanitised dot delimited paths of the candidates, possibly including ones whose node lost a conflict or is
+     * spelt such that it does not match
+     */
+    public Collection<String> pathsWithSegmentMatching(String querySegment) {
+        List<Set<String>> matchingSets = new ArrayList<>();
+        for (Layer layer : containerToLayer.values()) {
+            for (String segment : new THashSet<>(layer.segmentMatcher.matching(querySegment))) {
+                matchingSets.add(layer.segmentToPaths.get(segment));
+            }
+        }
+        if (matchingSets.size() == 1) {
+            return matchingSets.get(0);
+        }
+        Set<String> paths = new THashSet<>();
+        matchingSets.forEach(paths::addAll);
+        return paths;
+    }
+
+    /**
+     * Paths consumed from a single container
+     */
+    private static final class Layer {
+
+        private final Map<String, Set<String>> segmentToPaths;
+        /**
+         * Matches query segments against the keys of {@link #segmentToPaths}. A segment is put once per distinct
+         * original spelling, as the spelling determines its camel humps
+         */
+        private final SegmentMatcher<String> segmentMatcher;
+        /**
+         * Sets of this layer that can be modified in place
+         */
+        private final Set<Set<String>> ownedSets = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private Layer() {
+            this.segmentToPaths = new THashMap<>();
+            this.segmentMatcher = new SegmentMatcher<>();
+        }
+
+        private Layer(Layer base) {
+            this.segmentToPaths = new THashMap<>(base.segmentToPaths);
+            this.segmentMatcher = new SegmentMatcher<>(base.segmentMatcher);
+        }
+
+        private void addPath(String[] sanitisedPathSegments, String[] rawPathSegments) {
+            for (int i = 1; i < sanitisedPathSegments.length; i++) {
+                String segment = sanitisedPathSegments[i];
+                segmentMatcher.put(segment, rawPathSegments[i], segment);
+                Set<String> paths = own(segmentToPaths.get(segment));
+                if (paths.add(SuggestionIndexBuilder.toPathKey(sanitisedPathSegments, i + 1))) {
+                    segmentToPaths.put(segment, paths);
+                }
+            }
+        }
+
+        private Set<String> own(Set<String> paths) {
+            if (paths != null && ownedSets.contains(paths)) {
+                return paths;
+            }
+            Set<String> copy = paths != null ? new THashSet<>(paths) : new THashSet<>();
+            ownedSets.add(copy);
+            return copy;
+        }
+
+    }
+
+}
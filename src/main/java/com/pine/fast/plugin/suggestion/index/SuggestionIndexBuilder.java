@@ -0,0 +1,746 @@
+package com.pine.fast.plugin.suggestion.index;
+
+import static java.util.stream.Collectors.joining;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.Module;
+import com.pine.fast.plugin.suggestion.SegmentMatcher;
+import com.pine.fast.plugin.suggestion.Suggestion;
+import com.pine.fast.plugin.suggestion.SuggestionNode;
+import com.pine.fast.plugin.suggestion.metadata.MetadataNonPropertySuggestionNode;
+import com.pine.fast.plugin.suggestion.metadata.MetadataPropertySuggestionNode;
+import com.pine.fast.plugin.suggestion.metadata.MetadataSuggestionNode;
+import com.pine.fast.plugin.suggestion.metadata.io.MetadataConsumer;
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataHint;
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataProperty;
+import gnu.trove.THashSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import javax.annotation.Nullable;
+import org.apache.commons.collections4.Trie;
+import org.apache.commons.collections4.trie.PatriciaTrie;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * 将读取到的元数据逐条加入搜索索引
+ * <p>
+ * Simples are added as soon as they are consumed. Properties & hints are partitioned by their first sanitised path
+ * segment. {@link #build()} only creates the root level eagerly, each group root holds its partition as a pending
+ * expansion. Expanding a node adds just the next level & splits the rest of its partition by child, so a search only
+ * pays for the levels it descends into (see {@link MetadataNonPropertySuggestionNode#expandPendingChildren()}). Since
+ * two properties never share a node below the point where their paths part, nodes are expanded independently of each
+ * other without any locking beyond the node itself. Hints are placed after the properties at each level, as a hint can
+ * only be attached to a property that is already present in the index
+ * <p>
+ * Every node added to the tree is also registered in the path index under its full sanitised dot delimited path, which
+ * turns exact lookups into hash probes instead of a walk from the root. Nodes below a node that is not yet expanded are
+ * not in the path index
+ * <p>
+ * A builder either starts from scratch or is {@link #derivedFrom} a published snapshot to apply a delta. A derived
+ * builder shares the snapshot's tries till it first modifies them & then works on copies of them, which still share
+ * all roots with the snapshot. The path index & the side indexes are layered instead. A shared node is copied
+ * (see {@link MetadataSuggestionNode#copy}) before it is modified, a copy shares its children with the original, so a
+ * delta only costs a copy of the nodes along the paths it touches & the snapshot being derived from stays untouched
+ * for the searches still reading it
+ * <p>
+ * The segments of each property are recorded in the {@link SegmentIndex} as the property is consumed, so that deep
+ * searches can find nodes below roots that are not expanded yet. Names of simples are recorded in the
+ * {@link KeywordGramIndex} the same way, descriptions of both in the {@link DescriptionIndex}
+ *
+ * @author pine
+ */
+public class SuggestionIndexBuilder {
+
+    private static final Logger log = Logger.getInstance(SuggestionIndexBuilder.class);
+
+    /**
+     * Below this many properties & hints, the roots are built on the calling thread as forking is not worth the
+     * overhead
+     */
+    private static final int PARALLEL_BUILD_THRESHOLD = 2000;
+    /**
+     * Max number of properties & hints a single fork-join task builds before it splits its roots further
+     */
+    private static final int ITEMS_PER_TASK = 500;
+
+    /**
+     * Only used for logging, null when the index is not built for a specific module
+     */
+    @Nullable
+    private final Module module;
+    /**
+     * Within the trie, all keys are stored in sanitised format
+     */
+    private Trie<String, MetadataSuggestionNode> rootSearchIndex;
+    private Trie<String, MetadataSuggestionNode> simpleSearchIndex;
+    /**
+     * Matches query segments against the keys of the root trie
+     */
+    private SegmentMatcher<String> rootMatcher;
+    /**
+     * Whether the root trie & the root matcher are still the ones of the snapshot this builder is derived from
+     */
+    private boolean rootsShared;
+    /**
+     * Whether the simple trie is still the one of the snapshot this builder is derived from
+     */
+    private boolean simplesShared;
+    /**
+     * Full sanitised dot delimited path -> node. Written concurrently, as roots are expanded by search threads
+     */
+    private final PathIndex pathIndex;
+    private final SegmentIndex segmentIndex;
+    private final KeywordGramIndex keywordGramIndex;
+    private final DescriptionIndex descriptionIndex;
+    /**
+     * Sanitised root segment -> properties & hints under that root, in the order they were consumed
+     */
+    private final Map<String, PendingSlice> rootSegmentToSlice = new LinkedHashMap<>();
+    /**
+     * Sanitised dot delimited paths added or taken out by this builder, see {@link #getTouchedPaths()}
+     */
+    private final Set<String> touchedPaths = new THashSet<>();
+    /**
+     * Sanitised names of the simples added or taken out by this builder
+     */
+    private final Set<String> touchedSimples = new THashSet<>();
+    private final long version;
+    /**
+     * Roots of both tries that can be modified in place, null if every root can be, i.e when building from scratch
+     */
+    @Nullable
+    private final Set<MetadataSuggestionNode> ownedRoots;
+
+    public SuggestionIndexBuilder(@Nullable Module module) {
+        this(module, new PatriciaTrie<>(), new PatriciaTrie<>(), new SegmentMatcher<>(), false, new PathIndex(),
+                new SegmentIndex(), new KeywordGramIndex(), new DescriptionIndex(), 1, null);
+    }
+
+    private SuggestionIndexBuilder(@Nullable Module module, Trie<String, MetadataSuggestionNode> rootSearchIndex,
+                                   Trie<String, MetadataSuggestionNode> simpleSearchIndex,
+                                   SegmentMatcher<String> rootMatcher, boolean shared, PathIndex pathIndex,
+                                   SegmentIndex segmentIndex, KeywordGramIndex keywordGramIndex,
+                                   DescriptionIndex descriptionIndex, long version,
+                                   @Nullable Set<MetadataSuggestionNode> ownedRoots) {
+        this.module = module;
+        this.rootSearchIndex = rootSearchIndex;
+        this.simpleSearchIndex = simpleSearchIndex;
+        this.rootMatcher = rootMatcher;
+        this.rootsShared = shared;
+        this.simplesShared = shared;
+        this.pathIndex = pathIndex;
+        this.segmentIndex = segmentIndex;
+        this.keywordGramIndex = keywordGramIndex;
+        this.descriptionIndex = descriptionIndex;
+        this.version = version;
+        this.ownedRoots = ownedRoots;
+    }
+
+    /**
+     * Costs an empty path index layer & a copy of the side indexes' container -> layer maps, the tries are only copied
+     * once the delta modifies them (see {@link #writableSearchIndex})
+     *
+     * @return builder for the next version of {@code base}. {@code base} itself is never modified
+     */
+    public static SuggestionIndexBuilder derivedFrom(@Nullable Module module, SearchIndexSnapshot base) {
+        return new SuggestionIndexBuilder(module, base.getRootSearchIndex(), base.getSimpleSearchIndex(),
+                base.getRootMatcher(), true, PathIndex.derivedFrom(base.getPathIndex()),
+                new SegmentIndex(base.getSegmentIndex()),
+                new KeywordGramIndex(base.getKeywordGramIndex()), new DescriptionIndex(base.getDescriptionIndex()),
+                base.getVersion() + 1, Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    /**
+     * Builds whatever was consumed since the last build. The builder must not be used once the snapshot is published
+     */
+    public SearchIndexSnapshot toSnapshot() {
+        build();
+        return new SearchIndexSnapshot(version, rootSearchIndex, simpleSearchIndex, rootMatcher, pathIndex,
+                segmentIndex, keywordGramIndex, descriptionIndex);
+    }
+
+    /**
+     * @param containerArchiveOrFileRef file/jar the metadata is read from
+     * @return consumer that adds everything it receives to this index, tagged with {@code containerArchiveOrFileRef}
+     */
+    public MetadataConsumer consumerFor(String containerArchiveOrFileRef) {
+        return consumerFor(containerArchiveOrFileRef, false);
+    }
+
+    /**
+     * Same as {@link #consumerFor(String)}, except that a property replaces an existing property with the same path
+     * instead of being ignored. Removing the container later does not bring back what was replaced, so overriding
+     * metadata should be read into a builder {@link #derivedFrom} the snapshot without it
+     */
+    public MetadataConsumer overridingConsumerFor(String containerArchiveOrFileRef) {
+        return consumerFor(containerArchiveOrFileRef, true);
+    }
+
+    private MetadataConsumer consumerFor(String containerArchiveOrFileRef, boolean overriding) {
+        return new MetadataConsumer() {
+            @Override
+            public void consumeProperty(SpringConfigurationMetadataProperty property) {
+                PendingProperty pending = new PendingProperty(property, containerArchiveOrFileRef, overriding);
+                String[] pathSegments = pending.pathSegments;
+                segmentIndex.addPath(containerArchiveOrFileRef, pathSegments, pending.rawPathSegments);
+                String pathKey = toPathKey(pathSegments, pathSegments.length);
+                descriptionIndex.addProperty(containerArchiveOrFileRef, pathKey, property.getDescription());
+                touchedPaths.add(pathKey);
+                rootSegmentToSlice.computeIfAbsent(pathSegments[0], k -> new PendingSlice()).properties.add(pending);
+            }
+
+            @Override
+            public void consumeHint(SpringConfigurationMetadataHint hint) {
+                PendingHint pending = new PendingHint(hint, containerArchiveOrFileRef);
+                touchedPaths.add(toPathKey(pending.pathSegments, pending.pathSegments.length));
+                rootSegmentToSlice.computeIfAbsent(pending.pathSegments[0], k -> new PendingSlice()).hints.add(pending);
+            }
+
+            @Override
+            public void consumeSimple(SpringConfigurationMetadataProperty simple) {
+                addSimple(simple, containerArchiveOrFileRef);
+            }
+        };
+    }
+
+    /**
+     * Adds the root level for everything consumed so far to the root trie. Each group root holds what goes below it
+     * as a pending slice, which is expanded one level at a time as searches descend (see {@link #expandLevel}). A root
+     * this builder owns that is already expanded gets the slice applied right away
+     * <p>
+     * Merging a delta into roots shared with the base snapshot is the one bulk step left, as each such root is copied
+     * & the delta applied to the copy. Roots never share a node, so for a large delta they are built in fork-join tasks
+     * without any locking & only published to the root trie once all of them are complete
+     */
+    public void build() {
+        if (rootSegmentToSlice.isEmpty()) {
+            return;
+        }
+        String[] rootSegments = rootSegmentToSlice.keySet().toArray(new String[0]);
+        MetadataSuggestionNode[] existingRoots = new MetadataSuggestionNode[rootSegments.length];
+        int numOfPendingItems = 0;
+        for (int i = 0; i < rootSegments.length; i++) {
+            existingRoots[i] = rootSearchIndex.get(rootSegments[i]);
+            numOfPendingItems += rootSegmentToSlice.get(rootSegments[i]).size();
+        }
+        MetadataSuggestionNode[] roots = new MetadataSuggestionNode[rootSegments.length];
+        boolean parallel = numOfPendingItems >= PARALLEL_BUILD_THRESHOLD;
+        BuildRootsTask task = new BuildRootsTask(rootSegments, existingRoots, roots, 0, rootSegments.length, parallel);
+        if (parallel) {
+            ForkJoinPool.commonPool().invoke(task);
+        } else {
+            task.compute();
+        }
+
+        for (int i = 0; i < rootSegments.length; i++) {
+            MetadataSuggestionNode root = roots[i];
+            if (root == null) {
+                // only hints for a root that does not exist
+                continue;
+            }
+            if (root != existingRoots[i]) {
+                writableSearchIndex(true).put(rootSegments[i], root);
+            }
+            if (existingRoots[i] == null) {
+                rootMatcher.put(rootSegments[i], root.getOriginalName(), rootSegments[i]);
+                pathIndex.put(rootSegments[i], root);
+            }
+            if (ownedRoots != null) {
+                ownedRoots.add(root);
+            }
+        }
+        rootSegmentToSlice.clear();
+    }
+
+    /**
+     * @param existing root currently in the trie, copied first unless this builder owns it
+     * @return root after applying {@code slice}, null if there is still no root
+     */
+    @Nullable
+    private MetadataSuggestionNode buildRoot(String rootSegment, @Nullable MetadataSuggestionNode existing,
+                                             PendingSlice slice) {
+        MetadataSuggestionNode root = isShared(existing) ? copyRoot(rootSegment, existing) : existing;
+        Map<MetadataNonPropertySuggestionNode, PendingChildren> rootSlices = new LinkedHashMap<>();
+        for (PendingProperty pending : slice.properties) {
+            root = placeProperty(root, null, pending, 0, rootSegment, rootSlices);
+        }
+        for (PendingHint pending : slice.hints) {
+            placeHint(root, pending, 0, rootSegment, rootSlices);
+        }
+        rootSlices.forEach(this::deferExpansion);
+        return root;
+    }
+
+    /**
+     * Removes everything that was added from {@code containerArchiveOrFileRef}. Nodes that other containers contribute
+     * to stay in place. Only the paths of the subtrees that are taken out are dropped from the path index, the side
+     * indexes drop the container's layer
+     */
+    public void removeContainer(String containerArchiveOrFileRef) {
+        removeContainer(true, containerArchiveOrFileRef);
+        removeContainer(false, containerArchiveOrFileRef);
+        segmentIndex.removeContainer(containerArchiveOrFileRef);
+        keywordGramIndex.removeContainer(containerArchiveOrFileRef);
+        descriptionIndex.removeContainer(containerArchiveOrFileRef);
+    }
+
+    /**
+     * @return sanitised dot delimited paths of everything consumed or taken out by this builder so far. Anything that
+     * differs from the snapshot this builder is {@link #derivedFrom} is at, above or below one of them
+     */
+    public Set<String> getTouchedPaths() {
+        return touchedPaths;
+    }
+
+    /**
+     * @return sanitised names of the simples consumed or taken out by this builder so far
+     */
+    public Set<String> getTouchedSimples() {
+        return touchedSimples;
+    }
+
+    /**
+     * 根据 逗号  分隔为数组
+     *
+     * @param element
+     * @return
+     */
+    public static String[] toSanitizedPathSegments(String element) {
+        String[] splits = element.trim().split(Suggestion.PERIOD_DELIMITER, -1);
+        for (int i = 0; i < splits.length; i++) {
+            splits[i] = SuggestionNode.sanitise(splits[i]);
+        }
+        return splits;
+    }
+
+    /**
+     * @param sanitisedPathSegments sanitised path segments
+     * @param endIndexExcl          number of segments from the start to include
+     * @return key within the path index
+     */
+    public static String toPathKey(String[] sanitisedPathSegments, int endIndexExcl) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < endIndexExcl; i++) {
+            if (i != 0) {
+                builder.append('.');
+            }
+            builder.append(sanitisedPathSegments[i]);
+        }
+        return builder.toString();
+    }
+
+    public static String[] toRawPathSegments(String element) {
+        String[] splits = element.trim().split(Suggestion.PERIOD_DELIMITER, -1);
+        for (int i = 0; i < splits.length; i++) {
+            splits[i] = splits[i].trim();
+        }
+        return splits;
+    }
+
+    private void addSimple(SpringConfigurationMetadataProperty simple, String containerArchiveOrFileRef) {
+        String originalName = StringUtils.isEmpty(simple.getOriginalName()) ? simple.getName() : simple.getOriginalName();
+        MetadataSuggestionNode closestMetadata = MetadataPropertySuggestionNode
+                .newInstance(simple.getName(), originalName, simple, null, containerArchiveOrFileRef);
+        writableSearchIndex(false).put(simple.getName(), closestMetadata);
+        touchedSimples.add(SuggestionNode.sanitise(simple.getName()));
+        keywordGramIndex.add(containerArchiveOrFileRef, simple.getName());
+        descriptionIndex.addSimple(containerArchiveOrFileRef, simple.getName(), simple.getDescription());
+        if (ownedRoots != null) {
+            ownedRoots.add(closestMetadata);
+        }
+    }
+
+    /**
+     * Hands {@code slice} to {@code node}. A node that is not expanded yet (which includes every node created by the
+     * current expansion) only keeps the slice, after whatever it already holds from this builder, so that the
+     * consumption order is preserved. A node that is already expanded can only be one this builder owns, the slice is
+     * applied to it right away
+     */
+    private void deferExpansion(MetadataNonPropertySuggestionNode node, PendingChildren slice) {
+        Runnable pendingExpansion = node.getPendingExpansion();
+        if (pendingExpansion instanceof PendingChildren && ((PendingChildren) pendingExpansion).owner() == this) {
+            ((PendingChildren) pendingExpansion).append(slice);
+        } else if (pendingExpansion == null && node.getChildLookup() == null) {
+            node.setPendingExpansion(slice);
+        } else {
+            node.expandPendingChildren();
+            expandLevel(slice);
+        }
+    }
+
+    /**
+     * Adds the next level below {@code slice.node}. Properties are placed first, then hints, each in the order they
+     * were consumed. Whatever goes further down is split by child into sub-slices, which the children hold till a
+     * search descends into them
+     */
+    private void expandLevel(PendingChildren slice) {
+        MetadataNonPropertySuggestionNode node = slice.node;
+        int childDepth = slice.depth + 1;
+        Map<MetadataNonPropertySuggestionNode, PendingChildren> childSlices = new LinkedHashMap<>();
+        Map<String, MetadataSuggestionNode> newChildren = new LinkedHashMap<>();
+        for (PendingProperty pending : slice.properties) {
+            String childName = pending.pathSegments[childDepth];
+            MetadataSuggestionNode child = ownChild(node, childName, newChildren);
+            MetadataSuggestionNode placed =
+                    placeProperty(child, node, pending, childDepth, slice.pathKey + '.' + childName, childSlices);
+            if (placed != child) {
+                node.addChild(placed);
+                newChildren.put(childName, placed);
+            }
+        }
+        for (PendingHint pending : slice.hints) {
+            String childName = pending.pathSegments[childDepth];
+            placeHint(ownChild(node, childName, newChildren), pending, childDepth, slice.pathKey + '.' + childName,
+                    childSlices);
+        }
+        childSlices.forEach(this::deferExpansion);
+        // only once every child holds its slice, as a registered node can be reached by a search right away
+        newChildren.forEach((childName, child) -> pathIndex.put(slice.pathKey + '.' + childName, child));
+    }
+
+    /**
+     * Properties are placed in the order they are consumed. When a property & a group conflict on the same path, the
+     * one consumed first wins. When two properties have the same path, the first one wins unless the second one is
+     * {@code overriding}
+     *
+     * @param existing    node at {@code depth} along the property's path, null if there is none yet
+     * @param parent      parent of the node at {@code depth}, null for roots
+     * @param pathKey     path key of the node at {@code depth}
+     * @param childSlices receives the property under the node at {@code depth} if the property goes further down
+     * @return node at {@code depth} after placing the property, a new node if {@code existing} was null
+     */
+    @Nullable
+    private MetadataSuggestionNode placeProperty(@Nullable MetadataSuggestionNode existing,
+                                                 @Nullable MetadataNonPropertySuggestionNode parent,
+                                                 PendingProperty pending, int depth, String pathKey,
+                                                 Map<MetadataNonPropertySuggestionNode, PendingChildren> childSlices) {
+        String containerArchiveOrFileRef = pending.containerArchiveOrFileRef;
+        boolean haveMoreSegmentsLeft = depth < pending.pathSegments.length - 1;
+        if (haveMoreSegmentsLeft) {
+            if (existing == null) {
+                existing = MetadataNonPropertySuggestionNode
+                        .newInstance(pending.rawPathSegments[depth], parent, containerArchiveOrFileRef);
+            } else if (existing.isProperty()) {
+                log.warn("Detected conflict between a new group & existing property for suggestion path "
+                        + existing.getPathFromRoot(module)
+                        + ". Ignoring property. Existing non property node belongs to (" + existing
+                        .getBelongsTo().stream().collect(joining(",")) + "), New property belongs to "
+                        + containerArchiveOrFileRef);
+                return existing;
+            } else {
+                existing.getBelongsTo().add(containerArchiveOrFileRef);
+            }
+            MetadataNonPropertySuggestionNode group = MetadataNonPropertySuggestionNode.class.cast(existing);
+            childSlices.computeIfAbsent(group, k -> new PendingChildren(group, depth, pathKey)).properties.add(pending);
+        } else if (existing == null) {
+            existing = MetadataPropertySuggestionNode
+                    .newInstance(pending.rawPathSegments[depth], pending.property, parent, containerArchiveOrFileRef);
+        } else if (!existing.isProperty()) {
+            log.warn("Detected conflict between a new metadata property & existing non property node for suggestion path "
+                    + existing.getPathFromRoot(module)
+                    + ". Ignoring property. Existing non property node belongs to (" + existing
+                    .getBelongsTo().stream().collect(joining(",")) + "), New property belongs to "
+                    + containerArchiveOrFileRef);
+        } else if (pending.overriding) {
+            existing.addRefCascadeTillRoot(containerArchiveOrFileRef);
+            MetadataPropertySuggestionNode.class.cast(existing).setProperty(pending.property);
+        } else {
+            existing.addRefCascadeTillRoot(containerArchiveOrFileRef);
+            log.debug("Detected a duplicate metadata property for suggestion path " + existing
+                    .getPathFromRoot(module) + ". Ignoring property. Existing property belongs to ("
+                    + existing.getBelongsTo().stream().collect(joining(","))
+                    + "), New property belongs to " + containerArchiveOrFileRef);
+        }
+        return existing;
+    }
+
+    /**
+     * @param existing node at {@code depth} along the hint's path, null if there is none
+     */
+    private void placeHint(@Nullable MetadataSuggestionNode existing, PendingHint pending, int depth, String pathKey,
+                           Map<MetadataNonPropertySuggestionNode, PendingChildren> childSlices) {
+        if (existing == null) {
+            return;
+        }
+        SpringConfigurationMetadataHint hint = pending.hint;
+        boolean haveMoreSegmentsLeft = depth < pending.pathSegments.length - 1;
+        if (haveMoreSegmentsLeft) {
+            if (!existing.isProperty()) {
+                MetadataNonPropertySuggestionNode group = MetadataNonPropertySuggestionNode.class.cast(existing);
+                childSlices.computeIfAbsent(group, k -> new PendingChildren(group, depth, pathKey)).hints.add(pending);
+            }
+        } else if (!existing.isProperty()) {
+            log.warn("Unexpected hint " + hint.getName() + " is assigned to  group " + existing.getPathFromRoot(module)
+                    + " found. Hints can be only assigned to property. Ignoring the hint completely.Existing group belongs to ("
+                    + existing.getBelongsTo().stream().collect(joining(","))
+                    + "), New hint belongs " + pending.containerPath);
+        } else {
+            MetadataPropertySuggestionNode propertySuggestionNode =
+                    MetadataPropertySuggestionNode.class.cast(existing);
+            if (hint.representsValueOfMap()) {
+                propertySuggestionNode.getProperty().setValueHint(hint);
+            } else {
+                propertySuggestionNode.getProperty().setGenericOrKeyHint(hint);
+            }
+        }
+    }
+
+    /**
+     * Only a node this builder copied can have children that are shared with the base snapshot, a node that is expanded
+     * lazily only has the children it creates itself
+     *
+     * @param newChildren receives the child if it had to be copied first
+     * @return child of {@code node} that can be modified in place, null if there is none
+     */
+    @Nullable
+    private static MetadataSuggestionNode ownChild(MetadataNonPropertySuggestionNode node, String childName,
+                                                   Map<String, MetadataSuggestionNode> newChildren) {
+        Map<String, MetadataSuggestionNode> childLookup = node.getChildLookup();
+        MetadataSuggestionNode child = childLookup != null ? childLookup.get(childName) : null;
+        MetadataSuggestionNode ownedChild = node.ownChild(childName);
+        if (ownedChild != child) {
+            newChildren.put(childName, ownedChild);
+        }
+        return ownedChild;
+    }
+
+    /**
+     * @param roots whether to remove from the root trie or from the simple trie
+     */
+    private void removeContainer(boolean roots, String containerArchiveOrFileRef) {
+        // copied upfront, as owning a root replaces it in the trie
+        for (String key : new ArrayList<>(searchIndex(roots).keySet())) {
+            MetadataSuggestionNode root = searchIndex(roots).get(key);
+            Set<String> belongsTo = root.getBelongsTo();
+            if (belongsTo.contains(containerArchiveOrFileRef)) {
+                // a root that goes away entirely is not worth copying
+                MetadataSuggestionNode removedRoot = belongsTo.size() == 1 ? root : null;
+                if (removedRoot == null) {
+                    MetadataSuggestionNode ownedRoot = own(roots, key, root);
+                    if (ownedRoot.removeRefCascadeDown(containerArchiveOrFileRef, this::detachSubtree)) {
+                        removedRoot = ownedRoot;
+                    }
+                }
+                if (removedRoot != null) {
+                    writableSearchIndex(roots).remove(key);
+                    if (roots) {
+                        rootMatcher.remove(key, removedRoot.getOriginalName());
+                        detachSubtree(removedRoot);
+                    } else {
+                        touchedSimples.add(SuggestionNode.sanitise(key));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param roots whether {@code root} is in the root trie or in the simple trie
+     * @return {@code root} if it can be modified in place, otherwise a copy of it that replaces it in its trie
+     */
+    @Nullable
+    private MetadataSuggestionNode own(boolean roots, String key, @Nullable MetadataSuggestionNode root) {
+        if (!isShared(root)) {
+            return root;
+        }
+        MetadataSuggestionNode copy = roots ? copyRoot(key, root) : root.copy(null);
+        writableSearchIndex(roots).put(key, copy);
+        ownedRoots.add(copy);
+        return copy;
+    }
+
+    private Trie<String, MetadataSuggestionNode> searchIndex(boolean roots) {
+        return roots ? rootSearchIndex : simpleSearchIndex;
+    }
+
+    /**
+     * A trie is only ever as large as the number of roots or simples, so a delta that modifies it copies it as a
+     * whole, along with the root matcher for the root trie. A delta that leaves a trie alone shares it with the base
+     *
+     * @param roots whether to return the root trie or the simple trie
+     * @return trie this builder can modify in place
+     */
+    private Trie<String, MetadataSuggestionNode> writableSearchIndex(boolean roots) {
+        if (roots && rootsShared) {
+            rootSearchIndex = new PatriciaTrie<>(rootSearchIndex);
+            rootMatcher = new SegmentMatcher<>(rootMatcher);
+            rootsShared = false;
+        } else if (!roots && simplesShared) {
+            simpleSearchIndex = new PatriciaTrie<>(simpleSearchIndex);
+            simplesShared = false;
+        }
+        return searchIndex(roots);
+    }
+
+    /**
+     * @return true if {@code root} belongs to the snapshot this builder is derived from & must not be modified in place
+     */
+    private boolean isShared(@Nullable MetadataSuggestionNode root) {
+        return root != null && ownedRoots != null && !ownedRoots.contains(root);
+    }
+
+    /**
+     * Copies the root only, its children are shared with the original & copied as the delta reaches them (see
+     * {@link #ownChild}). The entries of the shared nodes still lead to the original root, so lookups below a copied
+     * root fall back to a walk from the root
+     */
+    private MetadataSuggestionNode copyRoot(String rootSegment, MetadataSuggestionNode root) {
+        MetadataSuggestionNode copy = root.copy(null);
+        pathIndex.put(rootSegment, copy);
+        return copy;
+    }
+
+    /**
+     * Drops the entries of a subtree that was taken out of the root trie. Entries that were replaced by another node
+     * in the meantime are kept
+     */
+    private void detachSubtree(MetadataSuggestionNode node) {
+        String pathKey = pathKeyOf(node);
+        touchedPaths.add(pathKey);
+        unregisterSubtree(node, pathKey);
+    }
+
+    private void unregisterSubtree(MetadataSuggestionNode node, String pathKey) {
+        pathIndex.remove(pathKey, node);
+        if (node instanceof MetadataNonPropertySuggestionNode) {
+            MetadataNonPropertySuggestionNode nonProperty = MetadataNonPropertySuggestionNode.class.cast(node);
+            // nothing below a node that is not expanded was ever registered
+            Map<String, MetadataSuggestionNode> childLookup =
+                    nonProperty.getPendingExpansion() == null ? nonProperty.getChildLookup() : null;
+            if (childLookup != null) {
+                childLookup.forEach((name, child) -> unregisterSubtree(child, pathKey + '.' + name));
+            }
+        }
+    }
+
+    private static String pathKeyOf(MetadataSuggestionNode node) {
+        return node.getNodesFromRoot().stream().map(SuggestionNode::getName).collect(joining("."));
+    }
+
+    /**
+     * Builds the roots for {@code rootSegments[from, to)}, splitting into smaller tasks while the range holds more than
+     * {@link #ITEMS_PER_TASK} properties & hints. Each root is only ever touched by a single task
+     */
+    private class BuildRootsTask extends RecursiveAction {
+
+        private final String[] rootSegments;
+        private final MetadataSuggestionNode[] existingRoots;
+        private final MetadataSuggestionNode[] roots;
+        private final int from;
+        private final int to;
+        private final boolean parallel;
+
+        BuildRootsTask(String[] rootSegments, MetadataSuggestionNode[] existingRoots, MetadataSuggestionNode[] roots,
+                       int from, int to, boolean parallel) {
+            this.rootSegments = rootSegments;
+            this.existingRoots = existingRoots;
+            this.roots = roots;
+            this.from = from;
+            this.to = to;
+            this.parallel = parallel;
+        }
+
+        @Override
+        protected void compute() {
+            int numOfItems = 0;
+            for (int i = from; i < to && parallel; i++) {
+                numOfItems += rootSegmentToSlice.get(rootSegments[i]).size();
+            }
+            if (parallel && to - from > 1 && numOfItems > ITEMS_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new BuildRootsTask(rootSegments, existingRoots, roots, from, mid, true),
+                        new BuildRootsTask(rootSegments, existingRoots, roots, mid, to, true));
+            } else {
+                for (int i = from; i < to; i++) {
+                    roots[i] = buildRoot(rootSegments[i], existingRoots[i], rootSegmentToSlice.get(rootSegments[i]));
+                }
+            }
+        }
+    }
+
+    private static class PendingProperty {
+
+        private final SpringConfigurationMetadataProperty property;
+        private final String containerArchiveOrFileRef;
+        private final boolean overriding;
+        private final String[] pathSegments;
+        private final String[] rawPathSegments;
+
+        PendingProperty(SpringConfigurationMetadataProperty property, String containerArchiveOrFileRef,
+                        boolean overriding) {
+            this.property = property;
+            this.containerArchiveOrFileRef = containerArchiveOrFileRef;
+            this.overriding = overriding;
+            this.pathSegments = toSanitizedPathSegments(property.getName());
+            this.rawPathSegments = toRawPathSegments(property.getName());
+        }
+    }
+
+    private static class PendingHint {
+
+        private final SpringConfigurationMetadataHint hint;
+        private final String containerPath;
+        private final String[] pathSegments;
+
+        PendingHint(SpringConfigurationMetadataHint hint, String containerPath) {
+            this.hint = hint;
+            this.containerPath = containerPath;
+            this.pathSegments = toSanitizedPathSegments(hint.getExpectedPropertyName());
+        }
+    }
+
+    /**
+     * Properties & hints that go below the same node, in the order they were consumed
+     */
+    private static class PendingSlice {
+
+        final List<PendingProperty> properties = new ArrayList<>();
+        final List<PendingHint> hints = new ArrayList<>();
+
+        int size() {
+            return properties.size() + hints.size();
+        }
+    }
+
+    /**
+     * Pending expansion of a single node. Expanding it adds the next level only, each child that has more below it gets
+     * its own slice
+     */
+    private class PendingChildren extends PendingSlice implements Runnable {
+
+        private final MetadataNonPropertySuggestionNode node;
+        /**
+         * Index of the node's segment within the paths of the slice
+         */
+        private final int depth;
+        private final String pathKey;
+
+        PendingChildren(MetadataNonPropertySuggestionNode node, int depth, String pathKey) {
+            this.node = node;
+            this.depth = depth;
+            this.pathKey = pathKey;
+        }
+
+        SuggestionIndexBuilder owner() {
+            return SuggestionIndexBuilder.this;
+        }
+
+        void append(PendingSlice slice) {
+            properties.addAll(slice.properties);
+            hints.addAll(slice.hints);
+        }
+
+        @Override
+        public void run() {
+            expandLevel(this);
+        }
+    }
+
+}
@@ -8,21 +8,22 @@ import static org.apache.commons.collections4.CollectionUtils.isEmpty;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.module.Module;
 import com.pine.fast.plugin.misc.GenericUtil;
+import com.pine.fast.plugin.suggestion.SearchBudget;
+import com.pine.fast.plugin.suggestion.SegmentMatcher;
 import com.pine.fast.plugin.suggestion.Suggestion;
 import com.pine.fast.plugin.suggestion.SuggestionNode;
 import com.pine.fast.plugin.suggestion.completion.FileType;
 import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataGroup;
-import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataProperty;
 import gnu.trove.THashMap;
 import gnu.trove.THashSet;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.function.Consumer;
 import javax.annotation.Nullable;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -31,8 +32,6 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
-import org.apache.commons.collections4.Trie;
-import org.apache.commons.collections4.trie.PatriciaTrie;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -136,10 +135,18 @@ public class MetadataNonPropertySuggestionNode extends MetadataSuggestionNode {
     private Map<String, MetadataSuggestionNode> childLookup;
 
     /**
-     * Child trie for the nodes at next level, aids in prefix based searching. NOTE: All keys are sanitized
+     * Matcher for the nodes at next level, aids in prefix, case insensitive & camel hump searching
      */
     @Nullable
-    private Trie<String, MetadataSuggestionNode> childrenTrie;
+    private SegmentMatcher<MetadataSuggestionNode> childMatcher;
+
+    /**
+     * Adds the next level of children that were not yet added to the tree at build time, the first time a search
+     * descends into this node. Each child that has more below it gets a pending expansion of its own. Null once
+     * expanded
+     */
+    @Nullable
+    private volatile Runnable pendingExpansion;
 
     /**
      * @param originalName name that is not sanitised
@@ -158,39 +165,6 @@ public class MetadataNonPropertySuggestionNode extends MetadataSuggestionNode {
         return builder.build();
     }
 
-    @Override
-    public MetadataSuggestionNode findDeepestMetadataNode(String[] pathSegments,
-                                                          int pathSegmentStartIndex, boolean matchAllSegments) {
-        MetadataSuggestionNode deepestMatch = null;
-        if (!matchAllSegments) {
-            deepestMatch = this;
-        }
-        boolean haveMoreSegments = pathSegmentStartIndex < pathSegments.length;
-        if (haveMoreSegments) {
-            boolean lastSegment = pathSegmentStartIndex == (pathSegments.length - 1);
-            String pathSegment = pathSegments[pathSegmentStartIndex];
-            if (hasChildren()) {
-                assert childLookup != null;
-                if (childLookup.containsKey(pathSegment)) {
-                    MetadataSuggestionNode child = childLookup.get(pathSegment);
-                    if (lastSegment) {
-                        deepestMatch = child;
-                    } else {
-                        deepestMatch = child
-                                .findDeepestMetadataNode(pathSegments, pathSegmentStartIndex + 1, matchAllSegments);
-                    }
-                    if (matchAllSegments && deepestMatch == null) {
-                        deepestMatch = this;
-                    }
-                }
-            } else if (lastSegment && name.equals(pathSegment)) {
-                deepestMatch = this;
-            }
-        }
-
-        return deepestMatch;
-    }
-
     @Override
     public SortedSet<Suggestion> findKeySuggestionsForContains(Module module, FileType fileType,
                                                               List<SuggestionNode> matchesRootTillMe, int numOfAncestors, String querySegmentPrefixes) {
@@ -203,6 +177,7 @@ public class MetadataNonPropertySuggestionNode extends MetadataSuggestionNode {
     @Override
     public List<SuggestionNode> findDeepestSuggestionNode(Module module,
                                                           List<SuggestionNode> matchesRootTillMe, String[] pathSegments, int pathSegmentStartIndex) {
+        expandPendingChildren();
         List<SuggestionNode> deepestMatch = null;
         boolean haveMoreSegments = pathSegmentStartIndex < pathSegments.length;
         if (haveMoreSegments) {
@@ -231,19 +206,18 @@ public class MetadataNonPropertySuggestionNode extends MetadataSuggestionNode {
     }
 
 
-    public void addChildren(SpringConfigurationMetadataProperty property, String[] rawPathSegments,
-                            int startIndex, String belongsTo) {
-        MetadataNonPropertySuggestionNode parentNode;
-        // since last property is the actual property, lets only add children only till last but one
-        int endIndexIncl = rawPathSegments.length - 2;
-        if (startIndex <= endIndexIncl) {
-            parentNode = addChildren(rawPathSegments, startIndex, endIndexIncl, belongsTo);
-        } else {
-            parentNode = this;
-            addRefCascadeTillRoot(belongsTo);
+    /**
+     * Adds {@code child} under its sanitised name, replacing any existing child with the same name
+     */
+    public void addChild(MetadataSuggestionNode child) {
+        if (!hasChildren()) {
+            childLookup = new THashMap<>();
+            childMatcher = new SegmentMatcher<>();
         }
-
-        parentNode.addProperty(property, rawPathSegments[rawPathSegments.length - 1], belongsTo);
+        assert childLookup != null;
+        assert childMatcher != null;
+        childLookup.put(child.getName(), child);
+        childMatcher.put(child.getName(), child.getOriginalName(), child);
     }
 
     @Override
@@ -251,34 +225,33 @@ public class MetadataNonPropertySuggestionNode extends MetadataSuggestionNode {
     public SortedSet<Suggestion> findKeySuggestionsForQueryPrefix(Module module, FileType fileType,
                                                                   List<SuggestionNode> matchesRootTillMe, int numOfAncestors, String[] querySegmentPrefixes,
                                                                   int querySegmentPrefixStartIndex, @Nullable Set<String> siblingsToExclude) {
+        expandPendingChildren();
         boolean lookingForConcreteNode = querySegmentPrefixStartIndex >= querySegmentPrefixes.length;
         if (lookingForConcreteNode) {
             if (isGroup()) {
                 // If we have only one child, lets send the child value directly instead of this node. This way user does not need trigger suggestion for level, esp. when we know there will is only be one child
                 if (hasOnlyOneChild(module)) {
-                    assert childrenTrie != null;
+                    assert childMatcher != null;
                     return addChildToMatchesAndSearchInNextLevel(module, fileType, matchesRootTillMe,
                             numOfAncestors, querySegmentPrefixes, querySegmentPrefixStartIndex,
-                            childrenTrie.values());
+                            childMatcher.values());
                 } else { // either there are no children/multiple children are present. Lets return suggestions
                     assert group != null;
                     return GenericUtil.newSingleElementSortedSet(
                             group.newSuggestion(fileType, matchesRootTillMe, numOfAncestors));
                 }
             } else { // intermediate node, lets get all next level groups & properties
-                assert childrenTrie != null;
+                assert childMatcher != null;
                 return addChildToMatchesAndSearchInNextLevel(module, fileType, matchesRootTillMe,
                         numOfAncestors, querySegmentPrefixes, querySegmentPrefixStartIndex,
-                        childrenTrie.values());
+                        childMatcher.values());
             }
         } else {
             if (hasChildren()) {
-                assert childrenTrie != null;
+                assert childMatcher != null;
                 assert childLookup != null;
                 String querySegmentPrefix = querySegmentPrefixes[querySegmentPrefixStartIndex];
-                SortedMap<String, MetadataSuggestionNode> sortedPrefixToMetadataNode =
-                        childrenTrie.prefixMap(querySegmentPrefix);
-                Collection<MetadataSuggestionNode> matchedChildren = sortedPrefixToMetadataNode.values();
+                Collection<MetadataSuggestionNode> matchedChildren = childMatcher.matching(querySegmentPrefix);
 
                 Set<MetadataSuggestionNode> exclusionMembers = null;
                 if (siblingsToExclude != null) {
@@ -317,10 +290,61 @@ public class MetadataNonPropertySuggestionNode extends MetadataSuggestionNode {
         }
     }
 
+    /**
+     * Runs the pending expansion if there is one. Safe to be called from multiple threads, the expansion runs only once
+     * & its result is visible to every caller once this returns
+     */
+    public void expandPendingChildren() {
+        if (pendingExpansion != null) {
+            synchronized (this) {
+                Runnable expansion = pendingExpansion;
+                if (expansion != null) {
+                    expansion.run();
+                    pendingExpansion = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies this node only, the copy shares its children with this node. The original is expanded first, its children
+     * stay as they are
+     */
+    @Override
+    public MetadataNonPropertySuggestionNode copy(@Nullable MetadataNonPropertySuggestionNode parent) {
+        expandPendingChildren();
+        MetadataNonPropertySuggestionNode copy = MetadataNonPropertySuggestionNode.builder().name(name)
+                .originalName(originalName).group(group).parent(parent).belongsTo(new THashSet<>(belongsTo)).build();
+        if (hasChildren()) {
+            assert childLookup != null;
+            assert childMatcher != null;
+            copy.childLookup = new THashMap<>(childLookup);
+            copy.childMatcher = new SegmentMatcher<>(childMatcher);
+        }
+        return copy;
+    }
+
+    /**
+     * A child still shared with the node this one was copied from has that node as its parent, such a child is copied
+     * & replaced by the copy, so that every node from the root down to the returned child can be modified in place
+     *
+     * @return child that can be modified in place, null if there is no such child
+     */
+    @Nullable
+    public MetadataSuggestionNode ownChild(String childName) {
+        MetadataSuggestionNode child = childLookup != null ? childLookup.get(childName) : null;
+        if (child == null || child.getParent() == this) {
+            return child;
+        }
+        MetadataSuggestionNode copy = child.copy(this);
+        addChild(copy);
+        return copy;
+    }
+
     @Override
     protected boolean hasOnlyOneChild(Module module) {
-        return childrenTrie != null && childrenTrie.size() == 1;
-        //     && childrenTrie.values().stream()
+        return childMatcher != null && childMatcher.size() == 1;
+        //     && childMatcher.values().stream()
         //        .allMatch(MetadataSuggestionNode::hasOnlyOneChild)
     }
 
@@ -328,6 +352,7 @@ public class MetadataNonPropertySuggestionNode extends MetadataSuggestionNode {
     public String toTree() {
         StringBuilder builder = new StringBuilder(originalName)
                 .append(isRoot() ? "(root + group)" : (isGroup() ? "(group)" : "(intermediate)"))
+                .append(pendingExpansion != null ? "(not expanded)" : "")
                 .append("\n");
         if (childLookup != null) {
             childLookup.forEach(
@@ -339,10 +364,16 @@ public class MetadataNonPropertySuggestionNode extends MetadataSuggestionNode {
 
     /**
      * @param containerPath Represents path to the metadata file container
-     * @return true if no children left & this item does not belong to any other source
+     * @param detached      receives every child that is taken out of the tree, along with its subtree
+     * @return true if no children are left or this item does not belong to any other source
      */
     @Override
-    public boolean removeRefCascadeDown(String containerPath) {
+    public boolean removeRefCascadeDown(String containerPath, Consumer<MetadataSuggestionNode> detached) {
+        // nothing below this node can belong to the container either
+        if (!belongsTo.contains(containerPath)) {
+            return false;
+        }
+        expandPendingChildren();
         belongsTo.remove(containerPath);
         // If the current node & all its children belong to a single file, lets remove the whole tree
         if (belongsTo.size() == 0) {
@@ -351,23 +382,35 @@ public class MetadataNonPropertySuggestionNode extends MetadataSuggestionNode {
 
         if (hasChildren()) {
             assert childLookup != null;
-            assert childrenTrie != null;
-            Iterator<MetadataSuggestionNode> iterator = childrenTrie.values().iterator();
-            while (iterator.hasNext()) {
-                MetadataSuggestionNode child = iterator.next();
-                boolean canRemoveReference = child.removeRefCascadeDown(containerPath);
+            assert childMatcher != null;
+            // copied upfront, as owning a child replaces it in the lookup
+            for (String childName : new ArrayList<>(childLookup.keySet())) {
+                MetadataSuggestionNode child = childLookup.get(childName);
+                Set<String> childBelongsTo = child.getBelongsTo();
+                if (!childBelongsTo.contains(containerPath)) {
+                    continue;
+                }
+                // a child that goes away entirely is not worth copying
+                boolean canRemoveReference = childBelongsTo.size() == 1;
+                if (!canRemoveReference) {
+                    child = ownChild(childName);
+                    assert child != null;
+                    canRemoveReference = child.removeRefCascadeDown(containerPath, detached);
+                }
                 if (canRemoveReference) {
-                    iterator.remove();
-                    childLookup.remove(child.getName());
-                    childrenTrie.remove(child.getName());
+                    childLookup.remove(childName);
+                    childMatcher.remove(child.getName(), child.getOriginalName());
+                    detached.accept(child);
                 }
             }
             if (!hasChildren()) {
                 childLookup = null;
-                childrenTrie = null;
+                childMatcher = null;
             }
         }
-        return false;
+        // a group is recorded against every container with a property below it upfront, so one whose properties all
+        // lost a conflict further down can be left without children
+        return !hasChildren();
     }
 
     @Override
@@ -404,7 +447,7 @@ public class MetadataNonPropertySuggestionNode extends MetadataSuggestionNode {
     }
 
     private boolean hasChildren() {
-        return childrenTrie != null && childrenTrie.size() != 0;
+        return childMatcher != null && childMatcher.size() != 0;
     }
 
     private Collection<MetadataSuggestionNode> computeChildrenToIterateOver(
@@ -421,61 +464,15 @@ public class MetadataNonPropertySuggestionNode extends MetadataSuggestionNode {
         return childrenToIterateOver;
     }
 
-    private void addProperty(SpringConfigurationMetadataProperty property, String originalName,
-                             String belongsTo) {
-        addRefCascadeTillRoot(belongsTo);
-        if (!hasChildren()) {
-            childLookup = new THashMap<>();
-            childrenTrie = new PatriciaTrie<>();
-        }
-
-        assert childLookup != null;
-        assert childrenTrie != null;
-        MetadataSuggestionNode childNode =
-                MetadataPropertySuggestionNode.newInstance(originalName, property, this, belongsTo);
-
-        String name = SuggestionNode.sanitise(originalName);
-        childLookup.put(name, childNode);
-        childrenTrie.put(name, childNode);
-    }
-
-    private MetadataNonPropertySuggestionNode addChildren(String[] rawPathSegments, int startIndex,
-                                                          int endIndexIncl, String belongsTo) {
-        addRefCascadeTillRoot(belongsTo);
-        if (!hasChildren()) {
-            childLookup = new THashMap<>();
-            childrenTrie = new PatriciaTrie<>();
-        }
-
-        assert childLookup != null;
-        assert childrenTrie != null;
-
-        String rawPathSegment = rawPathSegments[startIndex];
-        String pathSegment = SuggestionNode.sanitise(rawPathSegment);
-        MetadataNonPropertySuggestionNode childNode =
-                MetadataNonPropertySuggestionNode.class.cast(childLookup.get(pathSegment));
-        if (childNode == null) {
-            childNode = MetadataNonPropertySuggestionNode.newInstance(rawPathSegment, this, belongsTo);
-            childNode.setParent(this);
-
-            childLookup.put(pathSegment, childNode);
-            childrenTrie.put(pathSegment, childNode);
-        }
-
-        // If this is the last segment, lets set group
-        if (startIndex >= endIndexIncl) {
-            return childNode;
-        } else {
-            return childNode.addChildren(rawPathSegments, startIndex + 1, endIndexIncl, belongsTo);
-        }
-    }
-
     private SortedSet<Suggestion> addChildToMatchesAndSearchInNextLevel(Module module,
                                                                         FileType fileType, List<SuggestionNode> matchesRootTillParentNode, int numOfAncestors,
                                                                         String[] querySegmentPrefixes, int querySegmentPrefixStartIndex,
                                                                         Collection<MetadataSuggestionNode> childNodes) {
         SortedSet<Suggestion> suggestions = null;
         for (MetadataSuggestionNode child : childNodes) {
+            if (SearchBudget.outOfTime()) {
+                break;
+            }
             List<SuggestionNode> matchesRootTillChild =
                     unmodifiableList(GenericUtil.newListWithMembers(matchesRootTillParentNode, child));
             Set<Suggestion> matchedSuggestions = child
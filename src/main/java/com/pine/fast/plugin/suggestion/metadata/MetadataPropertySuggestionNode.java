@@ -10,6 +10,7 @@ import gnu.trove.THashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.function.Consumer;
 import javax.annotation.Nullable;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -18,6 +19,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.apache.commons.lang.StringUtils;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -100,26 +102,6 @@ public class MetadataPropertySuggestionNode extends MetadataSuggestionNode {
         return originalName;
     }
 
-    @Override
-    public MetadataSuggestionNode findDeepestMetadataNode(String[] pathSegments,
-                                                          int pathSegmentStartIndex, boolean matchAllSegments) {
-        com.pine.fast.plugin.suggestion.metadata.MetadataSuggestionNode deepestMatch = null;
-        if (!matchAllSegments) {
-            deepestMatch = this;
-        }
-        boolean haveMoreSegments = pathSegmentStartIndex < pathSegments.length;
-        if (haveMoreSegments) {
-            String pathSegment = pathSegments[pathSegmentStartIndex];
-            boolean lastSegment = pathSegmentStartIndex == (pathSegments.length - 1);
-            // since this is the last node in the metadata subsection of the tree, lets just return if this is not the last segment & last node
-            if (name.equals(pathSegment) && lastSegment) {
-                deepestMatch = this;
-            }
-        }
-
-        return deepestMatch;
-    }
-
     @Nullable
     @Override
     public List<SuggestionNode> findDeepestSuggestionNode(Module module,
@@ -164,7 +146,7 @@ public class MetadataPropertySuggestionNode extends MetadataSuggestionNode {
                                                                   List<SuggestionNode> matchesRootTillMe, int numOfAncestors,
                                                                   String querySegmentPrefixes) {
         if (!property.isDeprecatedError()) {
-            if (property.getName().contains(querySegmentPrefixes)) {
+            if (StringUtils.containsIgnoreCase(property.getName(), querySegmentPrefixes)) {
                 return GenericUtil.newSingleElementSortedSet(property.buildKeySuggestion2(module, fileType, matchesRootTillMe, numOfAncestors));
             }
         }
@@ -197,6 +179,12 @@ public class MetadataPropertySuggestionNode extends MetadataSuggestionNode {
         return true;
     }
 
+    @Override
+    public MetadataPropertySuggestionNode copy(@Nullable MetadataNonPropertySuggestionNode parent) {
+        return MetadataPropertySuggestionNode.builder().name(name).originalName(originalName).parent(parent)
+                .belongsTo(new THashSet<>(belongsTo)).property(property.copy()).build();
+    }
+
     @Override
     protected boolean hasOnlyOneChild(Module module) {
         // since we have to delegate any further lookups to the delegate (which has additional cost associated with parsing & building childrenTrie dynamically)
@@ -210,7 +198,7 @@ public class MetadataPropertySuggestionNode extends MetadataSuggestionNode {
     }
 
     @Override
-    public boolean removeRefCascadeDown(String containerPath) {
+    public boolean removeRefCascadeDown(String containerPath, Consumer<MetadataSuggestionNode> detached) {
         belongsTo.remove(containerPath);
         // If the current node & all its children belong to a single file, lets remove the whole tree
         return belongsTo.size() == 0;
@@ -6,33 +6,20 @@ import com.intellij.openapi.module.Module;
 import com.pine.fast.plugin.suggestion.Suggestion;
 import com.pine.fast.plugin.suggestion.SuggestionNode;
 import com.pine.fast.plugin.suggestion.completion.FileType;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.Stack;
+import java.util.function.Consumer;
 import javax.annotation.Nullable;
-import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
 public abstract class MetadataSuggestionNode implements SuggestionNode {
 
     //  static MetadataSuggestionNode NULL_NODE = null;
 
-    /**
-     * If {@code matchAllSegments} is true, all {@code pathSegments} starting from {@code pathSegmentStartIndex} will be
-     * attempted to be matched. If a result is found, it will be returned. Else null Else, method should attempt to
-     * match as deep as it can & return that match
-     *
-     * @param pathSegments          path segments to match against
-     * @param pathSegmentStartIndex index within {@code pathSegments} to start match from
-     * @param matchAllSegments      should all {@code pathSegments} be matched or not
-     * @return leaf suggestion node that matches path segments starting with {@code pathSegmentStartIndex} or null
-     * otherwise
-     */
-    @Contract("_, _, true -> null; _, _, false -> !null")
-    public abstract MetadataSuggestionNode findDeepestMetadataNode(String[] pathSegments,
-                                                                   int pathSegmentStartIndex, boolean matchAllSegments);
-
     @Override
     public SortedSet<Suggestion> findKeySuggestionsForQueryPrefix(Module module, FileType fileType,
                                                                   List<SuggestionNode> matchesRootTillMe, int numOfAncestors, String[] querySegmentPrefixes,
@@ -47,6 +34,11 @@ public abstract class MetadataSuggestionNode implements SuggestionNode {
                 querySegmentPrefixes);
     }
 
+    /**
+     * Adds the container to this node & all its ancestors, including the root. Every ancestor of a node always belongs
+     * to all containers the node belongs to, which lets {@link #removeRefCascadeDown(String, Consumer)} skip subtrees
+     * that dont belong to the container being removed
+     */
     public void addRefCascadeTillRoot(String containerPath) {
         MetadataSuggestionNode node = this;
         do {
@@ -55,16 +47,25 @@ public abstract class MetadataSuggestionNode implements SuggestionNode {
             }
             node.getBelongsTo().add(containerPath);
             node = node.getParent();
-        } while (node != null && !node.isRoot());
+        } while (node != null);
     }
 
     public abstract Set<String> getBelongsTo();
 
+    /**
+     * @param parent parent of the copy, null for roots
+     * @return copy of this node. Nothing of the node itself that is modified when metadata is added or removed is shared
+     * with the original, so the copy can be patched while searches keep reading the original. Children are shared, see
+     * {@link MetadataNonPropertySuggestionNode#ownChild} for copying the ones along a path that is modified
+     */
+    public abstract MetadataSuggestionNode copy(@Nullable MetadataNonPropertySuggestionNode parent);
+
     /**
      * @param containerPath Represents path to the metadata file container
+     * @param detached      receives every child that is taken out of the tree, along with its subtree
      * @return true if no children left & this item does not belong to any other source
      */
-    public abstract boolean removeRefCascadeDown(String containerPath);
+    public abstract boolean removeRefCascadeDown(String containerPath, Consumer<MetadataSuggestionNode> detached);
 
     @Override
     public abstract String getName();
@@ -110,6 +111,20 @@ public abstract class MetadataSuggestionNode implements SuggestionNode {
         return leafTillRoot.stream().collect(joining("."));
     }
 
+    /**
+     * @return nodes starting from root till this node (both inclusive)
+     */
+    public List<SuggestionNode> getNodesFromRoot() {
+        List<SuggestionNode> rootTillMe = new ArrayList<>(numOfHopesToRoot() + 1);
+        MetadataSuggestionNode current = this;
+        do {
+            rootTillMe.add(current);
+            current = current.getParent();
+        } while (current != null);
+        Collections.reverse(rootTillMe);
+        return rootTillMe;
+    }
+
     public abstract String toTree();
 
 }
@@ -0,0 +1,163 @@
+package com.pine.fast.plugin.suggestion.metadata.io;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataDeprecation;
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataDeprecationLevel;
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataHint;
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataHintValue;
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataProperty;
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataValueProvider;
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataValueProviderParams;
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataValueProviderType;
+import java.nio.ByteBuffer;
+import javax.annotation.Nullable;
+import lombok.experimental.UtilityClass;
+
+/**
+ * 读取构建期由 `compileSuggestionIndex` 任务生成的二进制索引(或 {@link MetadataCache} 缓存的索引)，免去 Gson 反射解析
+ * <p>
+ * Layout (big endian, all string references are indexes into the string table, -1 represents null)
+ * <pre>
+ * int   magic (FYIX)
+ * short version
+ * int   stringCount, then per string: int byteLength, UTF-8 bytes
+ * int   propertyCount, then per property: int name, int type, int description, value defaultValue,
+ *       int originalName, byte isAppendColon (-1 null, 0 false, 1 true), int sourceType,
+ *       byte hasDeprecation, (int level, int reason, int replacement) if hasDeprecation is 1
+ * int   hintCount, then per hint: int name, int valueCount, (value value, int description) * valueCount,
+ *       int providerCount, (int providerName, byte hasParameters, (int target, byte concrete) if hasParameters is 1)
+ *       * providerCount
+ * int   simpleCount, then per simple: same as property
+ *
+ * value: byte kind (0 null, 1 string, 2 any other json value), int string reference if kind is not 0
+ * </pre>
+ * Properties, hints & simples are handed over to the {@link MetadataConsumer} in the order they were written, i.e the
+ * order {@link BinaryMetadataWriter} consumed them in
+ *
+ * @author pine
+ */
+@UtilityClass
+public class BinaryMetadataReader {
+
+    static final int MAGIC = 0x46594958;
+    /**
+     * Bump whenever the layout changes, {@link BinaryMetadataWriter} writes whatever version this is
+     */
+    public static final short VERSION = 2;
+
+    static final byte NULL_VALUE = 0;
+    static final byte STRING_VALUE = 1;
+    static final byte JSON_VALUE = 2;
+
+    public static void read(ByteBuffer buffer, MetadataConsumer consumer) {
+        ByteBuffer in = buffer.duplicate();
+        checkHeader(in);
+
+        String[] strings = new String[in.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[in.getInt()];
+            in.get(bytes);
+            strings[i] = new String(bytes, UTF_8);
+        }
+
+        int propertyCount = in.getInt();
+        for (int i = 0; i < propertyCount; i++) {
+            consumer.consumeProperty(readProperty(in, strings));
+        }
+        int hintCount = in.getInt();
+        for (int i = 0; i < hintCount; i++) {
+            consumer.consumeHint(readHint(in, strings));
+        }
+        int simpleCount = in.getInt();
+        for (int i = 0; i < simpleCount; i++) {
+            consumer.consumeSimple(readProperty(in, strings));
+        }
+    }
+
+    /**
+     * Reads the header, leaving {@code in} positioned after it
+     *
+     * @throws IllegalArgumentException if {@code in} is not an index in the current format
+     */
+    static void checkHeader(ByteBuffer in) {
+        if (in.remaining() < 6 || in.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a suggestion index");
+        }
+        short version = in.getShort();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported suggestion index version " + version);
+        }
+    }
+
+    private static SpringConfigurationMetadataProperty readProperty(ByteBuffer in, String[] strings) {
+        SpringConfigurationMetadataProperty property = new SpringConfigurationMetadataProperty();
+        property.setName(string(in, strings));
+        property.setClassName(string(in, strings));
+        property.setDescription(string(in, strings));
+        property.setDefaultValue(value(in, strings));
+        property.setOriginalName(string(in, strings));
+        byte isAppendColon = in.get();
+        property.setIsAppendColon(isAppendColon < 0 ? null : isAppendColon == 1);
+        property.setSourceType(string(in, strings));
+        if (in.get() == 1) {
+            SpringConfigurationMetadataDeprecation deprecation = new SpringConfigurationMetadataDeprecation();
+            String level = string(in, strings);
+            deprecation.setLevel(level != null ? SpringConfigurationMetadataDeprecationLevel.valueOf(level) : null);
+            deprecation.setReason(string(in, strings));
+            deprecation.setReplacement(string(in, strings));
+            property.setDeprecation(deprecation);
+        }
+        return property;
+    }
+
+    private static SpringConfigurationMetadataHint readHint(ByteBuffer in, String[] strings) {
+        SpringConfigurationMetadataHint hint = new SpringConfigurationMetadataHint();
+        hint.setName(string(in, strings));
+
+        SpringConfigurationMetadataHintValue[] values = new SpringConfigurationMetadataHintValue[in.getInt()];
+        for (int j = 0; j < values.length; j++) {
+            values[j] = SpringConfigurationMetadataHintValue.builder().nameAsObjOrArray(value(in, strings))
+                    .description(string(in, strings)).build();
+        }
+        hint.setValues(values);
+
+        SpringConfigurationMetadataValueProvider[] providers =
+                new SpringConfigurationMetadataValueProvider[in.getInt()];
+        for (int j = 0; j < providers.length; j++) {
+            providers[j] = new SpringConfigurationMetadataValueProvider();
+            String name = string(in, strings);
+            providers[j].setType(name != null ? SpringConfigurationMetadataValueProviderType.fromName(name) : null);
+            if (in.get() == 1) {
+                SpringConfigurationMetadataValueProviderParams parameters =
+                        new SpringConfigurationMetadataValueProviderParams();
+                parameters.setTarget(string(in, strings));
+                parameters.setConcrete(in.get() == 1);
+                providers[j].setParameters(parameters);
+            }
+        }
+        hint.setProviders(providers);
+
+        hint.doOnGsonDeserialization();
+        return hint;
+    }
+
+    @Nullable
+    private static Object value(ByteBuffer in, String[] strings) {
+        switch (in.get()) {
+            case STRING_VALUE:
+                return string(in, strings);
+            case JSON_VALUE:
+                return StreamingMetadataReader.readValue(string(in, strings));
+            default:
+                return null;
+        }
+    }
+
+    @Nullable
+    private static String string(ByteBuffer in, String[] strings) {
+        int index = in.getInt();
+        return index < 0 ? null : strings[index];
+    }
+
+}
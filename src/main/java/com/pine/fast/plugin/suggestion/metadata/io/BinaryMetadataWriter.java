@@ -0,0 +1,171 @@
+package com.pine.fast.plugin.suggestion.metadata.io;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.gson.Gson;
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataDeprecation;
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataHint;
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataHintValue;
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataProperty;
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataValueProvider;
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataValueProviderParams;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * 收集读取到的元数据，并以 {@link BinaryMetadataReader} 的格式写出，用于将解析结果缓存到磁盘，也用于在构建时生成内置的
+ * {@link MetadataPack}，见 {@link SuggestionIndexCompiler}
+ * <p>
+ * Entries are written in the order they were consumed, so reading them back feeds the index exactly the same way as
+ * the original source did
+ * <p>
+ * Each entry is encoded as soon as it is consumed, into the buffer of its section, & its strings are interned on the
+ * way. The writer therefore never holds on to the consumed objects, only to their encoded form & the distinct strings.
+ * The string table is only complete once everything is consumed, {@link #writeTo} writes it ahead of the sections
+ *
+ * @author pine
+ */
+public class BinaryMetadataWriter implements MetadataConsumer {
+
+    private static final Gson GSON = new Gson();
+
+    private final Section properties = new Section();
+    private final Section hints = new Section();
+    private final Section simples = new Section();
+
+    private final Map<String, Integer> stringToIndex = new LinkedHashMap<>();
+
+    @Override
+    public void consumeProperty(SpringConfigurationMetadataProperty property) {
+        try {
+            writeProperty(properties.out, property);
+        } catch (IOException e) {
+            throw new IllegalStateException("Writing to memory never fails", e);
+        }
+        properties.count++;
+    }
+
+    @Override
+    public void consumeHint(SpringConfigurationMetadataHint hint) {
+        try {
+            writeHint(hints.out, hint);
+        } catch (IOException e) {
+            throw new IllegalStateException("Writing to memory never fails", e);
+        }
+        hints.count++;
+    }
+
+    @Override
+    public void consumeSimple(SpringConfigurationMetadataProperty simple) {
+        try {
+            writeProperty(simples.out, simple);
+        } catch (IOException e) {
+            throw new IllegalStateException("Writing to memory never fails", e);
+        }
+        simples.count++;
+    }
+
+    /**
+     * Writes the header & the string table, followed by the sections as they were encoded. Can be called again after
+     * consuming more entries
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(BinaryMetadataReader.MAGIC);
+        out.writeShort(BinaryMetadataReader.VERSION);
+        out.writeInt(stringToIndex.size());
+        for (String string : stringToIndex.keySet()) {
+            byte[] bytes = string.getBytes(UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        for (Section section : new Section[] {properties, hints, simples}) {
+            out.writeInt(section.count);
+            section.bytes.writeTo(out);
+        }
+        out.flush();
+    }
+
+    private void writeProperty(DataOutputStream out, SpringConfigurationMetadataProperty property)
+            throws IOException {
+        writeString(out, property.getName());
+        writeString(out, property.getClassName());
+        writeString(out, property.getDescription());
+        writeValue(out, property.getDefaultValue());
+        writeString(out, property.getOriginalName());
+        Boolean isAppendColon = property.getIsAppendColon();
+        out.writeByte(isAppendColon == null ? -1 : (isAppendColon ? 1 : 0));
+        writeString(out, property.getSourceType());
+        SpringConfigurationMetadataDeprecation deprecation = property.getDeprecation();
+        out.writeByte(deprecation != null ? 1 : 0);
+        if (deprecation != null) {
+            writeString(out, deprecation.getLevel() != null ? deprecation.getLevel().name() : null);
+            writeString(out, deprecation.getReason());
+            writeString(out, deprecation.getReplacement());
+        }
+    }
+
+    private void writeHint(DataOutputStream out, SpringConfigurationMetadataHint hint) throws IOException {
+        writeString(out, hint.getName());
+        SpringConfigurationMetadataHintValue[] values = hint.getValues();
+        out.writeInt(values != null ? values.length : 0);
+        if (values != null) {
+            for (SpringConfigurationMetadataHintValue value : values) {
+                writeValue(out, value.getNameAsObjOrArray());
+                writeString(out, value.getDescription());
+            }
+        }
+        SpringConfigurationMetadataValueProvider[] providers = hint.getProviders();
+        out.writeInt(providers != null ? providers.length : 0);
+        if (providers != null) {
+            for (SpringConfigurationMetadataValueProvider provider : providers) {
+                writeString(out, provider.getType() != null ? provider.getType().toName() : null);
+                SpringConfigurationMetadataValueProviderParams parameters = provider.getParameters();
+                out.writeByte(parameters != null ? 1 : 0);
+                if (parameters != null) {
+                    writeString(out, parameters.getTarget());
+                    out.writeByte(parameters.isConcrete() ? 1 : 0);
+                }
+            }
+        }
+    }
+
+    private void writeValue(DataOutputStream out, @Nullable Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(BinaryMetadataReader.NULL_VALUE);
+        } else {
+            out.writeByte(value instanceof String ? BinaryMetadataReader.STRING_VALUE : BinaryMetadataReader.JSON_VALUE);
+            writeString(out, valueAsString(value));
+        }
+    }
+
+    private void writeString(DataOutputStream out, @Nullable String value) throws IOException {
+        out.writeInt(value != null ? stringToIndex.computeIfAbsent(value, k -> stringToIndex.size()) : -1);
+    }
+
+    @Nullable
+    private static String valueAsString(@Nullable Object value) {
+        if (value == null || value instanceof String) {
+            return (String) value;
+        }
+        return GSON.toJson(value);
+    }
+
+    /**
+     * Encoded entries of one kind, in the order they were consumed
+     */
+    private static final class Section {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private int count;
+
+    }
+
+}
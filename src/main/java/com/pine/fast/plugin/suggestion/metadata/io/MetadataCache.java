@@ -0,0 +1,167 @@
+package com.pine.fast.plugin.suggestion.metadata.io;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * 将解析后的元数据以 {@link BinaryMetadataReader} 的格式缓存在 IDE 的 system 目录下，以内容的哈希为 key，内容不变时重启 IDE 无需再次解析
+ * <p>
+ * Each metadata source gets its own cache entry, so a changed source only costs parsing that source again. Entries are
+ * read through a memory mapped file, so the raw bytes never have to be copied into the heap. The least recently used
+ * entries are dropped once there are more than {@link #MAX_ENTRIES} of them. A miss is mapped the same way once it is
+ * stored, only if storing fails is the entry kept in the heap
+ * <p>
+ * The cache holds the parsed records rather than the built search index. Building from the records only creates the
+ * root level, every node below is created when a search first descends into it (see
+ * {@link com.pine.fast.plugin.suggestion.index.SuggestionIndexBuilder}), so an image of the built tree would mostly
+ * hold nodes a session never visits. The tree is also shared between index versions & copied node by node as metadata
+ * changes, which a read only mapping could not take part in. The side indexes are still rebuilt from the records, in
+ * the same single pass that feeds the tree
+ *
+ * @author pine
+ */
+public class MetadataCache {
+
+    private static final Logger log = Logger.getInstance(MetadataCache.class);
+
+    private static final String CACHE_DIR = "fast-yaml/metadata";
+    private static final String EXTENSION = ".idx";
+    private static final int MAX_ENTRIES = 64;
+
+    private final File cacheDir;
+
+    public MetadataCache(File cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    public static MetadataCache inSystemDirectory() {
+        return new MetadataCache(new File(PathManager.getSystemPath(), CACHE_DIR));
+    }
+
+    /**
+     * Feeds the metadata in {@code json} to {@code consumer}, from the cache if the same content was read before.
+     * Otherwise the json is parsed & the result is cached for the next time
+     *
+     * @param json content of a `spring-configuration-metadata.json` style file
+     */
+    public void read(byte[] json, MetadataConsumer consumer) throws IOException {
+        BinaryMetadataReader.read(load(json), consumer);
+    }
+
+    /**
+     * Same as {@link #read(byte[], MetadataConsumer)}, but hands back the metadata in {@link BinaryMetadataReader}
+     * format instead of consuming it. Safe to be called from multiple threads, which allows parsing many sources in
+     * parallel & consuming them later in a fixed order
+     *
+     * @return read only buffer, memory mapped unless the metadata could not be cached
+     */
+    public ByteBuffer load(byte[] json) throws IOException {
+        File cacheFile = new File(cacheDir, keyOf(json) + EXTENSION);
+        if (cacheFile.isFile()) {
+            try {
+                ByteBuffer cached = map(cacheFile);
+                BinaryMetadataReader.checkHeader(cached.duplicate());
+                //noinspection ResultOfMethodCallIgnored
+                cacheFile.setLastModified(System.currentTimeMillis());
+                return cached;
+            } catch (IOException | RuntimeException e) {
+                log.warn("Ignoring unreadable metadata cache " + cacheFile, e);
+                FileUtil.delete(cacheFile);
+            }
+        }
+
+        // entries are encoded as they are parsed, the writer never holds the parsed objects
+        BinaryMetadataWriter writer = new BinaryMetadataWriter();
+        StreamingMetadataReader.read(new InputStreamReader(new ByteArrayInputStream(json), UTF_8), writer);
+
+        try {
+            store(cacheFile, writer);
+            prune();
+            return map(cacheFile);
+        } catch (IOException e) {
+            log.warn("Could not cache metadata at " + cacheFile, e);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writer.writeTo(bytes);
+        return ByteBuffer.wrap(bytes.toByteArray()).asReadOnlyBuffer();
+    }
+
+    private ByteBuffer map(File cacheFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return channel.map(MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Written to a temporary file first & then moved in place, so that other IDE instances sharing the system
+     * directory never see a partially written entry. The writer streams straight into the file, the entry is mapped
+     * back afterwards instead of being kept in the heap
+     */
+    private void store(File cacheFile, BinaryMetadataWriter writer) throws IOException {
+        File tempFile = new File(cacheDir, cacheFile.getName() + ".tmp" + Thread.currentThread().getId());
+        FileUtil.createParentDirs(tempFile);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+            writer.writeTo(out);
+        }
+        try {
+            Files.move(tempFile.toPath(), cacheFile.toPath(), ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), cacheFile.toPath(), REPLACE_EXISTING);
+        }
+    }
+
+    private void prune() {
+        File[] entries = cacheDir.listFiles((dir, name) -> name.endsWith(EXTENSION));
+        if (entries != null && entries.length > MAX_ENTRIES) {
+            Arrays.sort(entries, Comparator.comparingLong(File::lastModified));
+            for (int i = 0; i < entries.length - MAX_ENTRIES; i++) {
+                // might fail on windows while the entry is still mapped, will be retried on the next store
+                FileUtil.delete(entries[i]);
+            }
+        }
+    }
+
+    /**
+     * @return hash of the content, suffixed with the format version so that a format change never reads stale entries
+     */
+    private static String keyOf(byte[] content) {
+        StringBuilder key = new StringBuilder();
+        for (byte b : sha1(content)) {
+            key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return key.append("-v").append(BinaryMetadataReader.VERSION).toString();
+    }
+
+    private static byte[] sha1(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-1").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is always available", e);
+        }
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.pine.fast.plugin.suggestion.metadata.io;
+
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataHint;
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataProperty;
+
+/**
+ * Receives metadata entries one at a time as they are read, so that readers never need to hold the whole metadata
+ * document in memory
+ *
+ * @author pine
+ */
+public interface MetadataConsumer {
+
+    void consumeProperty(SpringConfigurationMetadataProperty property);
+
+    /**
+     * @param hint fully initialised hint, i.e {@link SpringConfigurationMetadataHint#doOnGsonDeserialization()} is
+     *             already invoked
+     */
+    void consumeHint(SpringConfigurationMetadataHint hint);
+
+    void consumeSimple(SpringConfigurationMetadataProperty simple);
+
+}
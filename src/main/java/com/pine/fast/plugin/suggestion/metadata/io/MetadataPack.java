@@ -0,0 +1,90 @@
+package com.pine.fast.plugin.suggestion.metadata.io;
+
+import com.intellij.openapi.util.io.FileUtil;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import javax.annotation.Nullable;
+import lombok.Getter;
+
+/**
+ * 内置元数据按 `type` 拆分出的包，由 `compileSuggestionIndex` 任务分别生成 {@link BinaryMetadataReader} 格式的索引
+ * <p>
+ * {@link #COMMON} is always loaded. It holds the keywords shared by all frameworks, along with all properties & hints,
+ * as `desiredCapabilities` is what tells an Appium/Macaca script apart from a Selenium one. Framework packs are loaded
+ * the first time a file that needs them asks for completion, see {@link #frameworkOf(Collection)}
+ *
+ * @author pine
+ */
+public enum MetadataPack {
+
+    /**
+     * `common` & `getAttribute` keywords, properties & hints
+     */
+    COMMON("common", null),
+    SELENIUM("selenium", "selenium"),
+    /**
+     * `appium|macaca` keywords
+     */
+    APPIUM_MACACA("appium-macaca", "appium|macaca");
+
+    private static final String CAPABILITIES_KEY = "desiredCapabilities";
+
+    /**
+     * Name of the index file of this pack, as written by {@link SuggestionIndexCompiler}
+     */
+    @Getter
+    private final String fileName;
+    /**
+     * Classpath resource holding the index of this pack, also used as the container of its nodes
+     */
+    @Getter
+    private final String resource;
+    /**
+     * `type` of the keywords this pack holds, null for the keywords of any other type
+     */
+    @Nullable
+    private final String type;
+
+    MetadataPack(String name, @Nullable String type) {
+        this.fileName = name + ".idx";
+        this.resource = "/suggestion/" + fileName;
+        this.type = type;
+    }
+
+    /**
+     * @return the index of this pack, null if the plugin was run without going through the gradle build
+     */
+    @Nullable
+    public ByteBuffer load() throws IOException {
+        try (InputStream inputStream = MetadataPack.class.getResourceAsStream(resource)) {
+            return inputStream != null ? ByteBuffer.wrap(FileUtil.loadBytes(inputStream)).asReadOnlyBuffer() : null;
+        }
+    }
+
+    /**
+     * @param type `type` of a keyword in suggestion.json
+     * @return pack the keyword belongs to
+     */
+    public static MetadataPack ofType(@Nullable String type) {
+        for (MetadataPack pack : values()) {
+            if (pack.type != null && pack.type.equals(type)) {
+                return pack;
+            }
+        }
+        return COMMON;
+    }
+
+    /**
+     * Appium/Macaca scripts declare the capabilities the driver is started with at the top level, any other script is
+     * a Selenium script. A key that only shows up in a value or a comment does not count
+     *
+     * @param topLevelKeys top level keys of the yaml file completion is requested in
+     * @return framework pack the file needs
+     */
+    public static MetadataPack frameworkOf(Collection<String> topLevelKeys) {
+        return topLevelKeys.contains(CAPABILITIES_KEY) ? APPIUM_MACACA : SELENIUM;
+    }
+
+}
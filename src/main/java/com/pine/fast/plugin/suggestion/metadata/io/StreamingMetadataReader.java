@@ -0,0 +1,297 @@
+package com.pine.fast.plugin.suggestion.metadata.io;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataDeprecation;
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataDeprecationLevel;
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataHint;
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataHintValue;
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataProperty;
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataValueProvider;
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataValueProviderParams;
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataValueProviderType;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import lombok.experimental.UtilityClass;
+
+/**
+ * 流式解析 `spring-configuration-metadata.json` 格式的文件，每解析完一个条目立即交给 {@link MetadataConsumer}，不构建完整的对象模型，也不使用反射
+ * <p>
+ * `groups` are skipped as the index does not make use of them. Unknown attributes are ignored
+ *
+ * @author pine
+ */
+@UtilityClass
+public class StreamingMetadataReader {
+
+    public static void read(Reader reader, MetadataConsumer consumer) throws IOException {
+        try (JsonReader in = new JsonReader(reader)) {
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "properties":
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            consumer.consumeProperty(readProperty(in));
+                        }
+                        in.endArray();
+                        break;
+                    case "hints":
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            consumer.consumeHint(readHint(in));
+                        }
+                        in.endArray();
+                        break;
+                    case "simples":
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            consumer.consumeSimple(readProperty(in));
+                        }
+                        in.endArray();
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+        }
+    }
+
+    private static SpringConfigurationMetadataProperty readProperty(JsonReader in) throws IOException {
+        SpringConfigurationMetadataProperty property = new SpringConfigurationMetadataProperty();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "name":
+                    property.setName(nextStringOrNull(in));
+                    break;
+                case "type":
+                    property.setClassName(nextStringOrNull(in));
+                    break;
+                case "description":
+                    property.setDescription(nextStringOrNull(in));
+                    break;
+                case "sourceType":
+                    property.setSourceType(nextStringOrNull(in));
+                    break;
+                case "defaultValue":
+                    property.setDefaultValue(nextValue(in));
+                    break;
+                case "deprecation":
+                    property.setDeprecation(readDeprecation(in));
+                    break;
+                case "isAppendColon":
+                    property.setIsAppendColon(nextBooleanOrNull(in));
+                    break;
+                case "originalName":
+                    property.setOriginalName(nextStringOrNull(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return property;
+    }
+
+    @Nullable
+    private static SpringConfigurationMetadataDeprecation readDeprecation(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        SpringConfigurationMetadataDeprecation deprecation = new SpringConfigurationMetadataDeprecation();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "level":
+                    String level = nextStringOrNull(in);
+                    if (level != null) {
+                        try {
+                            deprecation.setLevel(SpringConfigurationMetadataDeprecationLevel.valueOf(level));
+                        } catch (IllegalArgumentException ignored) {
+                            // same as gson, unknown levels are treated as absent
+                        }
+                    }
+                    break;
+                case "reason":
+                    deprecation.setReason(nextStringOrNull(in));
+                    break;
+                case "replacement":
+                    deprecation.setReplacement(nextStringOrNull(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return deprecation;
+    }
+
+    private static SpringConfigurationMetadataHint readHint(JsonReader in) throws IOException {
+        SpringConfigurationMetadataHint hint = new SpringConfigurationMetadataHint();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "name":
+                    hint.setName(nextStringOrNull(in));
+                    break;
+                case "values":
+                    List<SpringConfigurationMetadataHintValue> values = new ArrayList<>();
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        values.add(readHintValue(in));
+                    }
+                    in.endArray();
+                    hint.setValues(values.toArray(new SpringConfigurationMetadataHintValue[0]));
+                    break;
+                case "providers":
+                    List<SpringConfigurationMetadataValueProvider> providers = new ArrayList<>();
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        providers.add(readValueProvider(in));
+                    }
+                    in.endArray();
+                    hint.setProviders(providers.toArray(new SpringConfigurationMetadataValueProvider[0]));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        // 解析完成后直接初始化取值索引，无需再经过 gson 的 TypeAdapter 包装
+        hint.doOnGsonDeserialization();
+        return hint;
+    }
+
+    private static SpringConfigurationMetadataHintValue readHintValue(JsonReader in) throws IOException {
+        SpringConfigurationMetadataHintValue.SpringConfigurationMetadataHintValueBuilder builder =
+                SpringConfigurationMetadataHintValue.builder();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "value":
+                    builder.nameAsObjOrArray(nextValue(in));
+                    break;
+                case "description":
+                    builder.description(nextStringOrNull(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return builder.build();
+    }
+
+    private static SpringConfigurationMetadataValueProvider readValueProvider(JsonReader in) throws IOException {
+        SpringConfigurationMetadataValueProvider provider = new SpringConfigurationMetadataValueProvider();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "name":
+                    String name = nextStringOrNull(in);
+                    provider.setType(name != null ? SpringConfigurationMetadataValueProviderType.fromName(name) : null);
+                    break;
+                case "parameters":
+                    SpringConfigurationMetadataValueProviderParams parameters =
+                            new SpringConfigurationMetadataValueProviderParams();
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        switch (in.nextName()) {
+                            case "target":
+                                parameters.setTarget(nextStringOrNull(in));
+                                break;
+                            case "concrete":
+                                Boolean concrete = nextBooleanOrNull(in);
+                                parameters.setConcrete(concrete != null && concrete);
+                                break;
+                            default:
+                                in.skipValue();
+                        }
+                    }
+                    in.endObject();
+                    provider.setParameters(parameters);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return provider;
+    }
+
+    @Nullable
+    private static String nextStringOrNull(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    @Nullable
+    private static Boolean nextBooleanOrNull(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextBoolean();
+    }
+
+    /**
+     * @param json json text of a single value, as written by {@link BinaryMetadataWriter}
+     * @return value read the same way as {@link #nextValue(JsonReader)}
+     */
+    @Nullable
+    static Object readValue(String json) {
+        try (JsonReader in = new JsonReader(new StringReader(json))) {
+            return nextValue(in);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid json value " + json, e);
+        }
+    }
+
+    /**
+     * Reads an arbitrary value the same way gson does for `Object` fields, i.e numbers become {@link Double}, arrays
+     * become {@link List} & objects become {@link Map}
+     */
+    @Nullable
+    private static Object nextValue(JsonReader in) throws IOException {
+        switch (in.peek()) {
+            case STRING:
+                return in.nextString();
+            case NUMBER:
+                return in.nextDouble();
+            case BOOLEAN:
+                return in.nextBoolean();
+            case BEGIN_ARRAY:
+                List<Object> list = new ArrayList<>();
+                in.beginArray();
+                while (in.hasNext()) {
+                    list.add(nextValue(in));
+                }
+                in.endArray();
+                return list;
+            case BEGIN_OBJECT:
+                Map<String, Object> map = new LinkedHashMap<>();
+                in.beginObject();
+                while (in.hasNext()) {
+                    map.put(in.nextName(), nextValue(in));
+                }
+                in.endObject();
+                return map;
+            default:
+                in.nextNull();
+                return null;
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.pine.fast.plugin.suggestion.metadata.io;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataHint;
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataProperty;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.EnumMap;
+import java.util.Map;
+import lombok.experimental.UtilityClass;
+
+/**
+ * 由 gradle 的 `compileSuggestionIndex` 任务在编译后运行，将 suggestion.json 按 `type` 拆分为 {@link MetadataPack}，并以
+ * {@link BinaryMetadataWriter} 写出，与运行时缓存使用同一个 writer
+ * <p>
+ * Usage: {@code SuggestionIndexCompiler <suggestion.json> <target dir>}, one {@code <pack>.idx} is written per pack
+ *
+ * @author pine
+ */
+@UtilityClass
+public class SuggestionIndexCompiler {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: SuggestionIndexCompiler <suggestion.json> <target dir>");
+        }
+        File targetDir = new File(args[1]);
+        if (!targetDir.isDirectory() && !targetDir.mkdirs()) {
+            throw new IOException("Could not create " + targetDir);
+        }
+
+        Map<MetadataPack, BinaryMetadataWriter> packToWriter = new EnumMap<>(MetadataPack.class);
+        for (MetadataPack pack : MetadataPack.values()) {
+            packToWriter.put(pack, new BinaryMetadataWriter());
+        }
+        try (Reader reader = new InputStreamReader(new FileInputStream(args[0]), UTF_8)) {
+            StreamingMetadataReader.read(reader, new MetadataConsumer() {
+                // properties & hints always go to the common pack, as files are told apart by them
+                @Override
+                public void consumeProperty(SpringConfigurationMetadataProperty property) {
+                    packToWriter.get(MetadataPack.COMMON).consumeProperty(property);
+                }
+
+                @Override
+                public void consumeHint(SpringConfigurationMetadataHint hint) {
+                    packToWriter.get(MetadataPack.COMMON).consumeHint(hint);
+                }
+
+                @Override
+                public void consumeSimple(SpringConfigurationMetadataProperty simple) {
+                    packToWriter.get(MetadataPack.ofType(simple.getClassName())).consumeSimple(simple);
+                }
+            });
+        }
+
+        for (Map.Entry<MetadataPack, BinaryMetadataWriter> entry : packToWriter.entrySet()) {
+            File target = new File(targetDir, entry.getKey().getFileName());
+            try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(target))) {
+                entry.getValue().writeTo(outputStream);
+            }
+        }
+    }
+
+}
@@ -29,9 +29,11 @@ public class SpringConfigurationMetadataHint implements com.pine.fast.plugin.sug
     @Getter
     private String name;
     @Setter
+    @Getter
     @Nullable
     private SpringConfigurationMetadataHintValue[] values;
     @Setter
+    @Getter
     @Nullable
     private SpringConfigurationMetadataValueProvider[] providers;
 
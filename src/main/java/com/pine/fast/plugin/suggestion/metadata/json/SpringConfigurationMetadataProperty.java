@@ -48,10 +48,12 @@ public class SpringConfigurationMetadataProperty
     private String name;
     @Nullable
     @Setter
+    @Getter
     @SerializedName("type")
     private String className;
     @Nullable
     @Setter
+    @Getter
     private String description;
     /**
      * The class name of the source that contributed this PROPERTY. For example, if the PROPERTY were from a class
@@ -60,6 +62,7 @@ public class SpringConfigurationMetadataProperty
      */
     @Nullable
     @Setter
+    @Getter
     private String sourceType;
     /**
      * Specify whether the PROPERTY is deprecated. If the field is not deprecated or if that information is not known,
@@ -67,6 +70,7 @@ public class SpringConfigurationMetadataProperty
      */
     @Nullable
     @Setter
+    @Getter
     private SpringConfigurationMetadataDeprecation deprecation;
     /**
      * The default value, which is used if the PROPERTY is not specified. If the type of the PROPERTY is an ARRAY, it
@@ -74,6 +78,7 @@ public class SpringConfigurationMetadataProperty
      */
     @Nullable
     @Setter
+    @Getter
     private Object defaultValue;
 
     /**
@@ -251,6 +256,27 @@ public class SpringConfigurationMetadataProperty
         delegateCreationAttempted = true;
     }
 
+    /**
+     * @return shallow copy, hints attached to the copy later on do not affect this property
+     */
+    public SpringConfigurationMetadataProperty copy() {
+        SpringConfigurationMetadataProperty copy = new SpringConfigurationMetadataProperty();
+        copy.name = name;
+        copy.className = className;
+        copy.description = description;
+        copy.sourceType = sourceType;
+        copy.deprecation = deprecation;
+        copy.defaultValue = defaultValue;
+        copy.genericOrKeyHint = genericOrKeyHint;
+        copy.valueHint = valueHint;
+        copy.delegate = delegate;
+        copy.nodeType = nodeType;
+        copy.delegateCreationAttempted = delegateCreationAttempted;
+        copy.isAppendColon = isAppendColon;
+        copy.originalName = originalName;
+        return copy;
+    }
+
     @Override
     public int compareTo(@NotNull SpringConfigurationMetadataProperty o) {
         return compare(this, o, comparing(thiz -> thiz.name));
@@ -4,5 +4,35 @@ package com.pine.fast.plugin.suggestion.metadata.json;
  * Refer to https://docs.spring.io/spring-boot/docs/2.0.0.M6/reference/htmlsingle/#_value_providers
  */
 public enum SpringConfigurationMetadataValueProviderType {
-    any, unknown, class_reference, handle_as, logger_name, spring_bean_reference, spring_profile_name
+    any, unknown, class_reference, handle_as, logger_name, spring_bean_reference, spring_profile_name;
+
+    /**
+     * @param providerTypeAsStr provider name as it appears in the metadata, e.g. `class-reference`
+     * @return matching provider type, {@link #unknown} if the name is not recognised
+     */
+    public static SpringConfigurationMetadataValueProviderType fromName(String providerTypeAsStr) {
+        switch (providerTypeAsStr) {
+            case "class-reference":
+                return class_reference;
+            case "handle-as":
+                return handle_as;
+            case "logger-name":
+                return logger_name;
+            case "spring-bean-reference":
+                return spring_bean_reference;
+            case "spring-profile-name":
+                return spring_profile_name;
+            case "any":
+                return any;
+            default:
+                return unknown;
+        }
+    }
+
+    /**
+     * @return name as it appears in the metadata, inverse of {@link #fromName(String)}
+     */
+    public String toName() {
+        return name().replace('_', '-');
+    }
 }
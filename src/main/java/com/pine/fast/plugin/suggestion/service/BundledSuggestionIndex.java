@@ -0,0 +1,141 @@
+package com.pine.fast.plugin.suggestion.service;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.LowMemoryWatcher;
+import com.intellij.openapi.util.io.FileUtil;
+import com.pine.fast.plugin.suggestion.index.SearchIndexSnapshot;
+import com.pine.fast.plugin.suggestion.index.SuggestionIndexBuilder;
+import com.pine.fast.plugin.suggestion.metadata.io.BinaryMetadataReader;
+import com.pine.fast.plugin.suggestion.metadata.io.MetadataCache;
+import com.pine.fast.plugin.suggestion.metadata.io.MetadataPack;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * 内置元数据与项目无关，由所有打开的项目共享一份索引，最后一个使用它的项目关闭时释放
+ * <p>
+ * Each project derives its own snapshot from the shared one (see {@link SuggestionIndexBuilder#derivedFrom}), which
+ * shares all roots the project's metadata does not touch. Loading a pack publishes a new shared version, projects
+ * rebase onto it only once one of their files needs that pack. On low memory the index is dropped & read again by the
+ * next {@link #include}
+ *
+ * @author pine
+ */
+public class BundledSuggestionIndex implements Disposable {
+
+    private static final Logger log = Logger.getInstance(BundledSuggestionIndex.class);
+
+    private static final String BUNDLED_CONTAINER = "/suggestion.json";
+
+    private final MetadataCache metadataCache = MetadataCache.inSystemDirectory();
+
+    /**
+     * Number of projects that acquired the index & have not released it yet
+     */
+    private int referenceCount;
+    @Nullable
+    private SearchIndexSnapshot snapshot;
+    private final Set<MetadataPack> loadedPacks = EnumSet.noneOf(MetadataPack.class);
+
+    public BundledSuggestionIndex() {
+        LowMemoryWatcher.register(this::drop, this);
+    }
+
+    public static BundledSuggestionIndex getInstance() {
+        return ServiceManager.getService(BundledSuggestionIndex.class);
+    }
+
+    /**
+     * Must be paired with a {@link #release()} once the caller no longer needs the index, e.g when its project closes
+     */
+    public synchronized void acquire() {
+        referenceCount++;
+    }
+
+    public synchronized void release() {
+        if (referenceCount > 0 && --referenceCount == 0) {
+            // projects that are still open hold on to the versions they derived from, nothing else does
+            snapshot = null;
+            loadedPacks.clear();
+            debug(() -> log.debug("Released bundled search index"));
+        }
+    }
+
+    /**
+     * Projects that derived from the current version keep it alive until they drop their own indexes as well
+     */
+    private synchronized void drop() {
+        snapshot = null;
+        loadedPacks.clear();
+    }
+
+    @Override
+    public void dispose() {
+        drop();
+    }
+
+    /**
+     * @param packs packs the caller needs, {@link MetadataPack#COMMON} is always included
+     * @return latest version of the index, containing at least {@code packs}
+     */
+    public synchronized SearchIndexSnapshot include(Collection<MetadataPack> packs) throws IOException {
+        if (snapshot == null) {
+            SuggestionIndexBuilder builder = new SuggestionIndexBuilder(null);
+            loadBundledMetadata(builder);
+            snapshot = builder.toSnapshot();
+        }
+
+        EnumSet<MetadataPack> missingPacks = EnumSet.noneOf(MetadataPack.class);
+        for (MetadataPack pack : packs) {
+            if (!loadedPacks.contains(pack)) {
+                missingPacks.add(pack);
+            }
+        }
+        if (!missingPacks.isEmpty()) {
+            SuggestionIndexBuilder builder = SuggestionIndexBuilder.derivedFrom(null, snapshot);
+            for (MetadataPack pack : missingPacks) {
+                ByteBuffer metadata = pack.load();
+                if (metadata != null) {
+                    BinaryMetadataReader.read(metadata, builder.consumerFor(pack.getResource()));
+                }
+                loadedPacks.add(pack);
+            }
+            snapshot = builder.toSnapshot();
+            debug(() -> log.debug("Loaded metadata packs " + missingPacks));
+        }
+        return snapshot;
+    }
+
+    /**
+     * 优先读取构建期生成的二进制索引，此时只加载公共包，框架相关的包在首次补全时按需加载。不存在时(如未经过 gradle 构建直接运行)
+     * 回退到解析完整的 json，解析结果缓存在磁盘上
+     */
+    private void loadBundledMetadata(SuggestionIndexBuilder builder) throws IOException {
+        ByteBuffer commonPack = MetadataPack.COMMON.load();
+        if (commonPack != null) {
+            BinaryMetadataReader.read(commonPack, builder.consumerFor(MetadataPack.COMMON.getResource()));
+            loadedPacks.add(MetadataPack.COMMON);
+            return;
+        }
+
+        debug(() -> log.debug(MetadataPack.COMMON.getResource() + " not found, falling back to " + BUNDLED_CONTAINER));
+        try (InputStream inputStream = getClass().getResourceAsStream(BUNDLED_CONTAINER)) {
+            metadataCache.read(FileUtil.loadBytes(inputStream), builder.consumerFor(BUNDLED_CONTAINER));
+        }
+        loadedPacks.addAll(EnumSet.allOf(MetadataPack.class));
+    }
+
+    private void debug(Runnable doWhenDebug) {
+        if (log.isDebugEnabled()) {
+            doWhenDebug.run();
+        }
+    }
+
+}
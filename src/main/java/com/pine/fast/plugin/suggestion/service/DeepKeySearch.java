@@ -0,0 +1,190 @@
+package com.pine.fast.plugin.suggestion.service;
+
+import static java.util.Collections.singletonList;
+import static java.util.Collections.unmodifiableList;
+
+import com.intellij.openapi.module.Module;
+import com.pine.fast.plugin.suggestion.SearchBudget;
+import com.pine.fast.plugin.suggestion.SegmentMatcher;
+import com.pine.fast.plugin.suggestion.Suggestion;
+import com.pine.fast.plugin.suggestion.SuggestionNode;
+import com.pine.fast.plugin.suggestion.completion.FileType;
+import com.pine.fast.plugin.suggestion.index.SearchIndexSnapshot;
+import com.pine.fast.plugin.suggestion.index.SuggestionIndexBuilder;
+import com.pine.fast.plugin.suggestion.metadata.MetadataNonPropertySuggestionNode;
+import com.pine.fast.plugin.suggestion.metadata.MetadataSuggestionNode;
+import gnu.trove.THashSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import lombok.AllArgsConstructor;
+
+/**
+ * 顶层 key 没有匹配时(如输入 {@code port} 查找 {@code server.port})，通过路径段倒排索引直接定位到深层的候选节点，而不是遍历所有根节点的子树
+ * <p>
+ * Gives the same result as searching every root with the first query segment unmatched: a node whose segment matches
+ * the first query segment is searched with the remaining segments, unless a match closer to the root shadows it.
+ * The walk only continues below a node if none of its children matched, so a candidate counts only if no node above
+ * its parent had a matching child of its own. Properties are leaves in this tree, so nodes that do not match the first
+ * query segment never contribute anything themselves. The cost depends on the number of candidates & their depth, not
+ * on the size of the tree
+ *
+ * @author pine
+ */
+final class DeepKeySearch {
+
+    private DeepKeySearch() {
+    }
+
+    /**
+     * @param querySegmentPrefixes sanitised query segments, the first one matches no root
+     * @param rootsToExclude       roots whose subtrees are not searched
+     * @return suggestions of all candidates that are not shadowed, null if there are none
+     */
+    @Nullable
+    static Set<Suggestion> search(Module module, FileType fileType, SearchIndexSnapshot snapshot,
+                                  String[] querySegmentPrefixes, Set<MetadataSuggestionNode> rootsToExclude) {
+        Collection<String> candidatePaths =
+                snapshot.getSegmentIndex().pathsWithSegmentMatching(querySegmentPrefixes[0]);
+        if (candidatePaths.isEmpty()) {
+            return null;
+        }
+
+        // 候选路径较多时(如 enabled 这类常见的段)并行解析 & 查找
+        List<CandidateMatch> matches = ParallelKeySearch.search(candidatePaths,
+                paths -> matchCandidates(module, fileType, snapshot, querySegmentPrefixes, rootsToExclude, paths),
+                DeepKeySearch::mergeMatches);
+        if (matches == null) {
+            return null;
+        }
+
+        // parents with at least one matching child, the walk does not go any deeper below them
+        Set<SuggestionNode> shadowingParents = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (CandidateMatch match : matches) {
+            shadowingParents.add(match.nodesFromRoot.get(match.nodesFromRoot.size() - 2));
+        }
+        Set<Suggestion> suggestions = null;
+        for (CandidateMatch match : matches) {
+            if (!isShadowed(match.nodesFromRoot, shadowingParents)) {
+                if (suggestions == null) {
+                    suggestions = new THashSet<>();
+                }
+                suggestions.addAll(match.suggestions);
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * Resolves & searches some of the candidates, safe to run concurrently with other batches of the same search
+     *
+     * @return candidates that have suggestions, null if none of them has
+     */
+    @Nullable
+    private static List<CandidateMatch> matchCandidates(Module module, FileType fileType, SearchIndexSnapshot snapshot,
+                                                        String[] querySegmentPrefixes,
+                                                        Set<MetadataSuggestionNode> rootsToExclude,
+                                                        Collection<String> candidatePaths) {
+        List<CandidateMatch> matches = null;
+        for (String path : candidatePaths) {
+            if (SearchBudget.outOfTime()) {
+                break;
+            }
+            List<SuggestionNode> nodesFromRoot = resolve(snapshot, path);
+            if (nodesFromRoot == null || rootsToExclude.contains(nodesFromRoot.get(0))) {
+                continue;
+            }
+            MetadataSuggestionNode candidate = (MetadataSuggestionNode) nodesFromRoot.get(nodesFromRoot.size() - 1);
+            // the index matched the spelling of some property, the node may be spelt differently
+            if (!SegmentMatcher.matches(querySegmentPrefixes[0], candidate.getName(), candidate.getOriginalName())) {
+                continue;
+            }
+            Set<Suggestion> suggestions = candidate
+                    .findKeySuggestionsForQueryPrefix(module, fileType, unmodifiableList(nodesFromRoot), 0,
+                            querySegmentPrefixes, 1, null);
+            if (suggestions != null) {
+                if (matches == null) {
+                    matches = new ArrayList<>();
+                }
+                matches.add(new CandidateMatch(nodesFromRoot, suggestions));
+            }
+        }
+        return matches;
+    }
+
+    private static List<CandidateMatch> mergeMatches(List<CandidateMatch> left, List<CandidateMatch> right) {
+        left.addAll(right);
+        return left;
+    }
+
+    /**
+     * @return true if a node above the candidate's parent has a matching child, i.e the walk never reaches the parent
+     */
+    private static boolean isShadowed(List<SuggestionNode> nodesFromRoot, Set<SuggestionNode> shadowingParents) {
+        for (int i = 0; i < nodesFromRoot.size() - 2; i++) {
+            if (shadowingParents.contains(nodesFromRoot.get(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The path index is probed first & the path rebuilt from the parent links. A node is only registered once its parent
+     * is expanded & a root shared with an earlier version registers its nodes in that version's path index, so a miss
+     * falls back to a walk from the root that expands each level it passes
+     *
+     * @param path sanitised dot delimited path
+     * @return nodes from the root to the node at {@code path}, null if the path no longer exists
+     */
+    @Nullable
+    static List<SuggestionNode> resolve(SearchIndexSnapshot snapshot, String path) {
+        String[] pathSegments = SuggestionIndexBuilder.toSanitizedPathSegments(path);
+        MetadataSuggestionNode root = snapshot.getRootSearchIndex().get(pathSegments[0]);
+        if (!(root instanceof MetadataNonPropertySuggestionNode)) {
+            return root != null && pathSegments.length == 1 ? singletonList(root) : null;
+        }
+        MetadataSuggestionNode indexed = snapshot.getPathIndex().get(path);
+        if (indexed != null) {
+            List<SuggestionNode> nodesFromRoot = indexed.getNodesFromRoot();
+            if (nodesFromRoot.get(0) == root) {
+                return nodesFromRoot;
+            }
+        }
+
+        List<SuggestionNode> nodesFromRoot = new ArrayList<>(pathSegments.length);
+        MetadataSuggestionNode current = root;
+        nodesFromRoot.add(current);
+        for (int i = 1; i < pathSegments.length; i++) {
+            if (!(current instanceof MetadataNonPropertySuggestionNode)) {
+                return null;
+            }
+            MetadataNonPropertySuggestionNode group = MetadataNonPropertySuggestionNode.class.cast(current);
+            group.expandPendingChildren();
+            Map<String, MetadataSuggestionNode> childLookup = group.getChildLookup();
+            current = childLookup != null ? childLookup.get(pathSegments[i]) : null;
+            if (current == null) {
+                return null;
+            }
+            nodesFromRoot.add(current);
+        }
+        return nodesFromRoot;
+    }
+
+    /**
+     * Candidate with suggestions of its own, whether they are offered depends on the other candidates
+     */
+    @AllArgsConstructor
+    private static final class CandidateMatch {
+
+        private final List<SuggestionNode> nodesFromRoot;
+        private final Set<Suggestion> suggestions;
+
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.pine.fast.plugin.suggestion.service;
+
+import com.pine.fast.plugin.suggestion.SearchBudget;
+import com.pine.fast.plugin.suggestion.Suggestion;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+
+/**
+ * 待查找的节点较多时(如查询前缀很短时匹配的根节点，或深层查找的候选路径)，拆分为 fork-join 任务并行查找
+ * <p>
+ * Items are split in halves until a batch is small enough to be searched sequentially. Each task returns a result of
+ * its own & the results are merged as the tasks join, so no result is ever written by two threads. The batches are
+ * bound to the search they were forked from (see {@link SearchBudget#bindToCurrentSearch}), they stop once the
+ * completion is cancelled or runs out of time. Searching a subtree only touches the metadata nodes, whose lazy
+ * expansion is safe to run concurrently, so the batches need no read action
+ *
+ * @param <T> items searched, e.g roots or candidate paths
+ * @param <R> result of a batch, null if the batch found nothing
+ * @author pine
+ */
+class ParallelKeySearch<T, R> extends RecursiveTask<R> {
+
+    /**
+     * Below this many items forking costs more than it saves. Top level prefixes rarely match this many roots, deep
+     * searches reach it for common segments, e.g {@code enabled} matches hundreds of paths in Spring Boot's metadata
+     */
+    static final int THRESHOLD = 128;
+    /**
+     * Batches per worker, more than one so that workers that finish early can steal from the others
+     */
+    private static final int BATCHES_PER_WORKER = 4;
+
+    private final List<T> items;
+    private final int from;
+    private final int to;
+    private final int batchSize;
+    private final Function<Collection<T>, R> searchBatch;
+    private final BinaryOperator<R> merge;
+
+    private ParallelKeySearch(List<T> items, int from, int to, int batchSize, Function<Collection<T>, R> searchBatch,
+                              BinaryOperator<R> merge) {
+        this.items = items;
+        this.from = from;
+        this.to = to;
+        this.batchSize = batchSize;
+        this.searchBatch = searchBatch;
+        this.merge = merge;
+    }
+
+    /**
+     * Searches {@code items} in parallel if there are at least {@link #THRESHOLD} of them, on the calling thread
+     * otherwise
+     *
+     * @param searchBatch sequential search over some of the items, must be safe to run concurrently
+     * @return merged suggestions of all items, null if there are none
+     */
+    @Nullable
+    static <T> Set<Suggestion> search(Collection<T> items, Function<Collection<T>, Set<Suggestion>> searchBatch) {
+        Set<Suggestion> suggestions = search(items, searchBatch, ParallelKeySearch::mergeSuggestions);
+        return suggestions == null || suggestions.isEmpty() ? null : suggestions;
+    }
+
+    /**
+     * @param searchBatch sequential search over some of the items, must be safe to run concurrently
+     * @param merge       merges the non null results of two batches, both were created by the batches & may be
+     *                    modified
+     * @return merged results of all batches, null if none of them found anything
+     */
+    @Nullable
+    static <T, R> R search(Collection<T> items, Function<Collection<T>, R> searchBatch, BinaryOperator<R> merge) {
+        if (items.size() < THRESHOLD) {
+            return searchBatch.apply(items);
+        }
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int batchSize = Math.max(1, items.size() / (pool.getParallelism() * BATCHES_PER_WORKER));
+        return pool.invoke(new ParallelKeySearch<>(new ArrayList<>(items), 0, items.size(), batchSize,
+                SearchBudget.bindToCurrentSearch(searchBatch), merge));
+    }
+
+    @Override
+    protected R compute() {
+        if (to - from <= batchSize) {
+            return searchBatch.apply(items.subList(from, to));
+        }
+        int middle = (from + to) >>> 1;
+        ParallelKeySearch<T, R> right = new ParallelKeySearch<>(items, middle, to, batchSize, searchBatch, merge);
+        right.fork();
+        R leftResult = new ParallelKeySearch<>(items, from, middle, batchSize, searchBatch, merge).compute();
+        R rightResult = right.join();
+        if (leftResult == null) {
+            return rightResult;
+        }
+        if (rightResult == null) {
+            return leftResult;
+        }
+        return merge.apply(leftResult, rightResult);
+    }
+
+    private static Set<Suggestion> mergeSuggestions(Set<Suggestion> left, Set<Suggestion> right) {
+        if (left.size() >= right.size()) {
+            left.addAll(right);
+            return left;
+        }
+        right.addAll(left);
+        return right;
+    }
+
+}
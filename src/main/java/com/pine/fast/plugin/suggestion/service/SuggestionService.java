@@ -6,6 +6,7 @@ import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.PsiElement;
 import com.pine.fast.plugin.suggestion.completion.FileType;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import javax.annotation.Nullable;
@@ -17,6 +18,41 @@ public interface SuggestionService {
         return ServiceManager.getService(project, SuggestionService.class);
     }
 
+    /**
+     * Starts building the search index in a background task, so that the first completion request does not have to
+     * wait for it. Does nothing if the index is already built/being built
+     *
+     * @param project project whose index should be built
+     */
+    void initSearchIndexInBackground(Project project);
+
+    /**
+     * Adds the given metadata files to the index, re-reading the ones that were already added. The files are
+     * remembered for the project & are re-read whenever they change
+     *
+     * @param project   project whose index should be updated
+     * @param filePaths paths of `spring-configuration-metadata.json` style files
+     */
+    void loadCustomMetadata(Project project, Collection<String> filePaths);
+
+    /**
+     * Updates the index for those of the given files that were added via {@link #loadCustomMetadata}, other files are
+     * ignored. Files that no longer exist are removed from the index. The update happens in the background
+     *
+     * @param project          project whose index should be updated
+     * @param changedFilePaths paths of files that were changed, created or deleted
+     */
+    void reloadCustomMetadata(Project project, Collection<String> changedFilePaths);
+
+    /**
+     * Re-applies the keywords persisted for the project (see {@link com.pine.fast.plugin.persistent.ServerPersistent})
+     * on top of the index. Does nothing if the index is not built yet, as the build applies them itself. The update
+     * happens in the background
+     *
+     * @param project project whose keywords changed
+     */
+    void reloadProjectKeywords(Project project);
+
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
     boolean canProvideSuggestions(Project project, Module module);
 
@@ -1,121 +1,775 @@
 package com.pine.fast.plugin.suggestion.service;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.stream;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
 import static java.util.Collections.singletonList;
 import static java.util.Collections.unmodifiableList;
-import static java.util.Comparator.comparing;
-import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 
-import com.google.gson.GsonBuilder;
 import com.intellij.codeInsight.lookup.LookupElementBuilder;
+import com.intellij.ide.util.PropertiesComponent;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.module.Module;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.LowMemoryWatcher;
+import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
 import com.pine.fast.plugin.misc.GenericUtil;
+import com.pine.fast.plugin.persistent.ProjectKeyword;
+import com.pine.fast.plugin.persistent.ServerPersistent;
 import com.pine.fast.plugin.persistent.SystemConfig;
+import com.pine.fast.plugin.suggestion.FuzzyPrefixMatcher;
+import com.pine.fast.plugin.suggestion.SearchBudget;
 import com.pine.fast.plugin.suggestion.Suggestion;
 import com.pine.fast.plugin.suggestion.SuggestionNode;
 import com.pine.fast.plugin.suggestion.completion.FileType;
-import com.pine.fast.plugin.suggestion.metadata.MetadataNonPropertySuggestionNode;
+import com.pine.fast.plugin.suggestion.index.ClasspathMetadataScanner;
+import com.pine.fast.plugin.suggestion.index.DescriptionIndex;
+import com.pine.fast.plugin.suggestion.index.SearchIndexChange;
+import com.pine.fast.plugin.suggestion.index.SearchIndexListener;
+import com.pine.fast.plugin.suggestion.index.SearchIndexSnapshot;
+import com.pine.fast.plugin.suggestion.index.SuggestionIndexBuilder;
 import com.pine.fast.plugin.suggestion.metadata.MetadataPropertySuggestionNode;
 import com.pine.fast.plugin.suggestion.metadata.MetadataSuggestionNode;
-import com.pine.fast.plugin.suggestion.metadata.json.GsonPostProcessEnablingTypeFactory;
-import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadata;
-import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataHint;
+import com.pine.fast.plugin.suggestion.metadata.io.BinaryMetadataReader;
+import com.pine.fast.plugin.suggestion.metadata.io.MetadataCache;
+import com.pine.fast.plugin.suggestion.metadata.io.MetadataConsumer;
+import com.pine.fast.plugin.suggestion.metadata.io.MetadataPack;
 import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataProperty;
-import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataValueProviderType;
-import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataValueProviderTypeDeserializer;
-import gnu.trove.THashMap;
 import gnu.trove.THashSet;
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
 import java.util.Set;
-import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
 import javax.annotation.Nullable;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.Trie;
-import org.apache.commons.collections4.trie.PatriciaTrie;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.time.StopWatch;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.yaml.YAMLUtil;
+import org.jetbrains.yaml.psi.YAMLFile;
+import org.jetbrains.yaml.psi.YAMLKeyValue;
 
-public class SuggestionServiceImpl implements SuggestionService {
+public class SuggestionServiceImpl implements SuggestionService, Disposable {
 
     private final static String MODULE_NAME = "yaml";
     private final static String SIMPLE_NAME = "simple";
+    private final static String CUSTOM_METADATA_KEY = "com.pine.fast.plugin.customMetadata";
+    private final static String PROJECT_KEYWORDS_CONTAINER = "ServerPersistent.xml";
+    private final static long FIRST_PUBLISH_POLL_MILLIS = 50;
 
     private static final Logger log = Logger.getInstance(SuggestionServiceImpl.class);
 
     /**
-     * Within the trie, all keys are stored in sanitised format to enable us find keys without worrying about hiphens,
-     * underscores, e.t.c in the keys themselves
+     * Latest published version of the index, null until the first build completes. Replaced as a whole whenever
+     * metadata changes, searches read whichever version was current when they started without taking any lock.
+     * Writers hold {@link #indexUpdateLock}
      */
-    private final Map<String, Trie<String, MetadataSuggestionNode>> moduleNameToRootSearchIndex;
+    private final AtomicReference<SearchIndexSnapshot> snapshot = new AtomicReference<>();
 
-    SuggestionServiceImpl() {
-        moduleNameToRootSearchIndex = new THashMap<>();
+    /**
+     * Parsed metadata of json sources, persisted across IDE restarts
+     */
+    private final MetadataCache metadataCache = MetadataCache.inSystemDirectory();
+    private final ClasspathMetadataScanner classpathMetadataScanner = new ClasspathMetadataScanner(metadataCache);
+    /**
+     * Set once the index build has been kicked off, either by the startup activity or by the first search
+     */
+    private final AtomicBoolean indexingStarted = new AtomicBoolean();
+    /**
+     * Completed once the build published its first snapshot (the bundled metadata) or failed. Searches that arrive
+     * before wait on it, rather than each building an index of their own or finding none. They do not wait for the
+     * metadata of the project, which the build publishes later
+     */
+    private final CompletableFuture<Void> firstPublish = new CompletableFuture<>();
+    /**
+     * Number of full builds, each project builds its index once & patches it from then on
+     */
+    private final AtomicInteger buildCount = new AtomicInteger();
+    /**
+     * Serialises the initial build & incremental updates, so that each update derives from the latest snapshot
+     */
+    private final Object indexUpdateLock = new Object();
+    /**
+     * Packs the files of this project have asked for so far. Requested packs are included as soon as the index is
+     * published
+     */
+    private final Set<MetadataPack> requestedPacks = ConcurrentHashMap.newKeySet();
+    /**
+     * Version of the shared bundled index the published snapshot derives from, null until the first build
+     */
+    @Nullable
+    private SearchIndexSnapshot base;
+    /**
+     * Packs {@link #base} was requested with, replaced as a whole
+     */
+    private volatile Set<MetadataPack> basePacks = EnumSet.noneOf(MetadataPack.class);
+    private boolean bundledIndexAcquired;
+    /**
+     * Metadata of this project (dependencies & custom files) by container, in the order it is read on top of the base
+     */
+    private final Map<String, ByteBuffer> containerToMetadata = new LinkedHashMap<>();
+    /**
+     * Base + {@link #containerToMetadata}, i.e the published snapshot without the keywords of the project. Kept so
+     * that a change of the keywords is applied on top of it, rather than patching the keywords out of the snapshot
+     */
+    @Nullable
+    private SearchIndexSnapshot projectLayer;
+    /**
+     * Keywords persisted for this project (see {@link ServerPersistent}), overlaid on top of {@link #projectLayer}
+     */
+    private List<ProjectKeyword> projectKeywords = emptyList();
+    /**
+     * Containers of {@link #containerToMetadata} that come from the classpath of the project, in classpath order
+     */
+    private volatile List<String> classpathContainers = emptyList();
+    /**
+     * Module name -> classpath containers the module sees, in classpath order. Custom metadata & project keywords apply
+     * to all modules alike
+     */
+    private final Map<String, List<String>> moduleNameToContainers = new ConcurrentHashMap<>();
+    /**
+     * Classpath containers -> index of the modules that see exactly these, least recently used first. Modules with the
+     * same dependencies share one index & each index shares all roots its dependencies dont touch with the base, so a
+     * module index only costs the roots its own dependencies contribute to. Modules that see the whole classpath of the
+     * project use the project index, which is not part of the bound
+     */
+    private final Map<List<String>, SearchIndexSnapshot> containersToModuleIndex =
+            new LinkedHashMap<List<String>, SearchIndexSnapshot>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<List<String>, SearchIndexSnapshot> eldest) {
+                    return size() > SystemConfig.getMaxModuleIndexes();
+                }
+            };
+    private final Set<String> modulesBeingIndexed = ConcurrentHashMap.newKeySet();
+    /**
+     * Set when the indexes were dropped on low memory, the next search rebuilds them from {@link #containerToMetadata}
+     */
+    private volatile boolean indexDropped;
+    /**
+     * Version of the last {@link SearchIndexChange}, guarded by {@link #indexUpdateLock}
+     */
+    private long changeVersion;
+    /**
+     * Changes published under {@link #indexUpdateLock} but not yet delivered to the listeners, in version order
+     */
+    private final Queue<SearchIndexChange> undeliveredChanges = new ConcurrentLinkedQueue<>();
+    /**
+     * Held while delivering changes, so that listeners get them one at a time & in version order
+     */
+    private final Object changeDeliveryLock = new Object();
+    /**
+     * Number of custom metadata updates so far, guarded by {@link #indexUpdateLock}. Tells the build that custom
+     * metadata changed while it was reading it outside the lock
+     */
+    private long customMetadataVersion;
+
+    private final Project project;
+
+    SuggestionServiceImpl(Project project) {
+        this.project = project;
+        // 索引在后台线程构建、发布，查询线程只读取已发布的索引
+        requestedPacks.add(MetadataPack.COMMON);
+        // 内存不足时释放索引，下次补全时重新构建
+        LowMemoryWatcher.register(this::dropSearchIndexes, this);
+    }
+
+    @Override
+    public void initSearchIndexInBackground(Project project) {
+        if (indexingStarted.compareAndSet(false, true)) {
+            ProgressManager.getInstance().run(new Task.Backgroundable(project, "Fast Yaml: 构建配置索引", false) {
+                @Override
+                public void run(@NotNull ProgressIndicator indicator) {
+                    buildSearchIndex(project, indicator);
+                }
+            });
+        }
+    }
+
+    /**
+     * Starts the same background build as the startup activity, if no one has started it yet (e.g the startup activity
+     * did not run) & waits for its first snapshot, whichever build is running
+     */
+    private void initSearchIndex(Project project) {
+        initSearchIndexInBackground(project);
+        awaitFirstPublish();
     }
 
     /**
-     * 根据 逗号  分隔为数组
+     * Waits until the build published its first snapshot, as long as the search is not cancelled. The EDT never waits,
+     * it is served from whatever has been published so far
+     */
+    private void awaitFirstPublish() {
+        if (firstPublish.isDone() || ApplicationManager.getApplication().isDispatchThread()) {
+            return;
+        }
+        while (!firstPublish.isDone()) {
+            ProgressManager.checkCanceled();
+            try {
+                firstPublish.get(FIRST_PUBLISH_POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ignored) {
+                // check for cancellation again
+            } catch (ExecutionException e) {
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Publishes in two steps, so that completion answers early: the bundled metadata first, which is already indexed &
+     * shared by all projects, then the classpath & custom metadata of the project on top of it. Searches are served
+     * from whichever was published last
+     * <p>
+     * Everything the index is built from is read without holding {@link #indexUpdateLock}, the lock is only taken to
+     * derive & publish the index. Indexes are built privately & published as a snapshot once the root level is in
+     * place, so a search never sees a half built trie. Nodes below the roots are expanded on first use by the search
+     * threads
+     */
+    private void buildSearchIndex(Project project, ProgressIndicator indicator) {
+        buildCount.incrementAndGet();
+        try {
+            indicator.setIndeterminate(false);
+            indicator.setText("读取配置元数据");
+            indicator.setFraction(0);
+            BundledSuggestionIndex bundledIndex = BundledSuggestionIndex.getInstance();
+            synchronized (indexUpdateLock) {
+                if (!bundledIndexAcquired) {
+                    bundledIndex.acquire();
+                    bundledIndexAcquired = true;
+                }
+            }
+            Set<MetadataPack> packs = EnumSet.copyOf(requestedPacks);
+            SearchIndexSnapshot nextBase = bundledIndex.include(packs);
+            synchronized (indexUpdateLock) {
+                base = nextBase;
+                basePacks = packs;
+                projectKeywords = ServerPersistent.getInstance(project).getKeywords();
+                publish(nextBase);
+            }
+            deliverChanges();
+            firstPublish.complete(null);
+            debug(() -> log.debug("Published bundled search index, reading the metadata of the project"));
+
+            // 内置元数据优先，与依赖中的元数据冲突时以内置的为准
+            indicator.setText("扫描依赖中的配置元数据");
+            indicator.setFraction(0.2);
+            Map<String, ByteBuffer> classpathMetadata = classpathMetadataScanner.scan(project);
+            indicator.setText("读取自定义配置");
+            indicator.setFraction(0.4);
+            boolean published = false;
+            while (!published) {
+                long customMetadataVersionRead;
+                synchronized (indexUpdateLock) {
+                    customMetadataVersionRead = customMetadataVersion;
+                }
+                Map<String, ByteBuffer> customMetadata = loadCustomMetadata(getCustomMetadataPaths(project));
+                synchronized (indexUpdateLock) {
+                    // an update that came in meanwhile found no index to patch, so its files are read again
+                    if (customMetadataVersionRead == customMetadataVersion) {
+                        indicator.setText("构建配置索引");
+                        indicator.setFraction(0.5);
+                        // on top of the latest base, packs may have been included since the first publish
+                        containerToMetadata.clear();
+                        containerToMetadata.putAll(classpathMetadata);
+                        classpathContainers = new ArrayList<>(containerToMetadata.keySet());
+                        // the classpath of the modules may have changed as well
+                        moduleNameToContainers.clear();
+                        containerToMetadata.putAll(customMetadata);
+                        projectKeywords = ServerPersistent.getInstance(project).getKeywords();
+                        publish(deriveFromBase(container -> true));
+                        published = true;
+                    }
+                }
+            }
+            deliverChanges();
+            indicator.setFraction(1);
+            debug(() -> log.debug(toTree()));
+        } catch (Exception e) {
+            log.error("初始化搜索索引失败", e);
+        } finally {
+            firstPublish.complete(null);
+        }
+        // packs requested while the index was being built
+        includeRequestedPacks();
+    }
+
+    /**
+     * Reads the metadata of this project on top of the base, the result shares all roots the project does not
+     * contribute to with the base & thus with every other open project
      *
-     * @param element
-     * @return
+     * @param containerFilter containers of {@link #containerToMetadata} to read
+     */
+    private SearchIndexSnapshot deriveFromBase(Predicate<String> containerFilter) {
+        assert base != null;
+        SuggestionIndexBuilder builder = SuggestionIndexBuilder.derivedFrom(null, base);
+        containerToMetadata.forEach((container, metadata) -> {
+            if (containerFilter.test(container)) {
+                try {
+                    BinaryMetadataReader.read(metadata, builder.consumerFor(container));
+                } catch (RuntimeException e) {
+                    log.warn("Ignoring unreadable metadata from " + container, e);
+                }
+            }
+        });
+        return builder.toSnapshot();
+    }
+
+    /**
+     * Publishes a new project layer along with the keywords on top of it. Module indexes derive from the same sources,
+     * so they are dropped & rebuilt on demand. Callers must hold {@link #indexUpdateLock} & call
+     * {@link #deliverChanges()} once they released it
      */
-    private static String[] toSanitizedPathSegments(String element) {
-        String[] splits = element.trim().split(Suggestion.PERIOD_DELIMITER, -1);
-        for (int i = 0; i < splits.length; i++) {
-            splits[i] = SuggestionNode.sanitise(splits[i]);
+    private void publish(SearchIndexSnapshot nextProjectLayer) {
+        SearchIndexSnapshot previous = snapshot.get();
+        SearchIndexSnapshot next = replaceSnapshot(nextProjectLayer);
+        // 通知依赖索引的缓存及打开的编辑器，在释放锁之后
+        enqueueChange(SearchIndexChange.between(++changeVersion, previous, next));
+    }
+
+    /**
+     * Same as {@link #publish(SearchIndexSnapshot)} for a version that differs from the current one only at, above or
+     * below {@code touchedPaths} & in {@code touchedSimples}, so that the change names them instead of whole roots
+     */
+    private void publish(SearchIndexSnapshot nextProjectLayer, Collection<String> touchedPaths,
+                         Collection<String> touchedSimples) {
+        SearchIndexSnapshot previous = snapshot.get();
+        SearchIndexSnapshot next = replaceSnapshot(nextProjectLayer);
+        enqueueChange(previous != null ? SearchIndexChange.of(++changeVersion, touchedPaths, touchedSimples)
+                : SearchIndexChange.between(++changeVersion, null, next));
+    }
+
+    private SearchIndexSnapshot replaceSnapshot(SearchIndexSnapshot nextProjectLayer) {
+        SearchIndexSnapshot next = applyOverlay(nextProjectLayer);
+        projectLayer = nextProjectLayer;
+        snapshot.set(next);
+        indexDropped = false;
+        synchronized (containersToModuleIndex) {
+            containersToModuleIndex.clear();
         }
-        return splits;
+        return next;
     }
 
-    private static String[] toRawPathSegments(String element) {
-        String[] splits = element.trim().split(Suggestion.PERIOD_DELIMITER, -1);
-        for (int i = 0; i < splits.length; i++) {
-            splits[i] = splits[i].trim();
+    private void enqueueChange(SearchIndexChange change) {
+        if (!change.isEmpty()) {
+            undeliveredChanges.add(change);
         }
-        return splits;
     }
 
-    private void initSearchIndex(Module module) {
-        Trie<String, MetadataSuggestionNode> rootSearchIndex = moduleNameToRootSearchIndex.get(MODULE_NAME);
-        Trie<String, MetadataSuggestionNode> simpleSearchIndex = moduleNameToRootSearchIndex.get(SIMPLE_NAME);
+    /**
+     * Delivers the changes published so far, by whichever thread gets here first. Must not be called while holding
+     * {@link #indexUpdateLock}, so that listeners never hold up searches & updates
+     */
+    private void deliverChanges() {
+        synchronized (changeDeliveryLock) {
+            SearchIndexChange change;
+            while ((change = undeliveredChanges.poll()) != null) {
+                if (project.isDisposed()) {
+                    continue;
+                }
+                project.getMessageBus().syncPublisher(SearchIndexListener.TOPIC).searchIndexChanged(change);
+                SearchIndexChange delivered = change;
+                debug(() -> log.debug("Delivered search index change " + delivered.getVersion() + ", affected "
+                        + (delivered.isEverything() ? "everything"
+                        : delivered.getAffectedPaths() + " " + delivered.getAffectedSimples())));
+            }
+        }
+    }
 
-        if (rootSearchIndex == null) {
-            rootSearchIndex = new PatriciaTrie<>();
-            simpleSearchIndex = new PatriciaTrie<>();
-            moduleNameToRootSearchIndex.put(MODULE_NAME, rootSearchIndex);
-            moduleNameToRootSearchIndex.put(SIMPLE_NAME, simpleSearchIndex);
+    /**
+     * Drops everything derived from the metadata, i.e the project layer, the published index & the module indexes.
+     * Searches in flight keep the version they captured. The metadata itself stays, it is memory mapped from
+     * {@link MetadataCache} & takes next to no heap
+     */
+    private void dropSearchIndexes() {
+        synchronized (indexUpdateLock) {
+            if (projectLayer == null) {
+                return;
+            }
+            snapshot.set(null);
+            projectLayer = null;
+            base = null;
+            basePacks = EnumSet.noneOf(MetadataPack.class);
+            synchronized (containersToModuleIndex) {
+                containersToModuleIndex.clear();
+            }
+            indexDropped = true;
+        }
+        log.info("Dropped search indexes on low memory, they are rebuilt on the next completion");
+    }
 
-            try {
-                // TODO: pine 2021/3/31 通过本地配置 + 外部配置实现
-                InputStream inputStream = getClass().getResourceAsStream("/suggestion.json");
-                GsonBuilder gsonBuilder = new GsonBuilder();
-                // register custom mapper adapters
-                gsonBuilder.registerTypeAdapter(SpringConfigurationMetadataValueProviderType.class,
-                        new SpringConfigurationMetadataValueProviderTypeDeserializer());
-                gsonBuilder.registerTypeAdapterFactory(new GsonPostProcessEnablingTypeFactory());
-                SpringConfigurationMetadata springConfigurationMetadata = gsonBuilder.create()
-                        .fromJson(new BufferedReader(new InputStreamReader(inputStream, UTF_8)),
-                                SpringConfigurationMetadata.class);
+    /**
+     * Rebuilds the indexes dropped by {@link #dropSearchIndexes()} on the calling thread. Only the root level is read,
+     * subtrees are expanded on first use as after a regular build
+     */
+    private void restoreSearchIndex() {
+        if (!indexDropped) {
+            return;
+        }
+        try {
+            Set<MetadataPack> packs = EnumSet.copyOf(requestedPacks);
+            SearchIndexSnapshot nextBase = BundledSuggestionIndex.getInstance().include(packs);
+            synchronized (indexUpdateLock) {
+                if (!indexDropped) {
+                    return;
+                }
+                base = nextBase;
+                basePacks = packs;
+                publish(deriveFromBase(container -> true));
+            }
+            deliverChanges();
+            debug(() -> log.debug("Restored search index after low memory"));
+        } catch (IOException | RuntimeException e) {
+            // retried on the next search
+            log.warn("重建配置索引失败", e);
+        }
+    }
+
+    /**
+     * @return index of the module if it is built, the project index otherwise. A missing module index is built in the
+     * background, until then the module is served suggestions from all dependencies of the project
+     */
+    @Nullable
+    private SearchIndexSnapshot indexFor(@Nullable Module module) {
+        SearchIndexSnapshot projectIndex = snapshot.get();
+        if (module == null || projectIndex == null) {
+            return projectIndex;
+        }
+        List<String> containers = moduleNameToContainers.get(module.getName());
+        if (containers != null && containers.equals(classpathContainers)) {
+            return projectIndex;
+        }
+        SearchIndexSnapshot moduleIndex = null;
+        if (containers != null) {
+            synchronized (containersToModuleIndex) {
+                moduleIndex = containersToModuleIndex.get(containers);
+            }
+        }
+        if (moduleIndex == null) {
+            buildModuleIndexInBackground(module);
+            return projectIndex;
+        }
+        return moduleIndex;
+    }
+
+    private void buildModuleIndexInBackground(Module module) {
+        if (modulesBeingIndexed.add(module.getName())) {
+            ApplicationManager.getApplication().executeOnPooledThread(() -> {
+                try {
+                    buildModuleIndex(module);
+                } catch (RuntimeException e) {
+                    log.warn("构建模块配置索引失败 " + module.getName(), e);
+                } finally {
+                    modulesBeingIndexed.remove(module.getName());
+                }
+            });
+        }
+    }
+
+    private void buildModuleIndex(Module module) {
+        Set<String> rootPaths = ClasspathMetadataScanner.rootPathsOf(module);
+        synchronized (indexUpdateLock) {
+            if (projectLayer == null) {
+                return;
+            }
+            List<String> containers = classpathContainers.stream().filter(rootPaths::contains).collect(toList());
+            moduleNameToContainers.put(module.getName(), containers);
+            if (containers.equals(classpathContainers)) {
+                return;
+            }
+            synchronized (containersToModuleIndex) {
+                if (containersToModuleIndex.containsKey(containers)) {
+                    return;
+                }
+            }
+
+            Set<String> moduleContainers = new THashSet<>(containers);
+            Set<String> projectClasspathContainers = new THashSet<>(classpathContainers);
+            SearchIndexSnapshot moduleIndex = applyOverlay(deriveFromBase(
+                    container -> moduleContainers.contains(container) || !projectClasspathContainers
+                            .contains(container)));
+            synchronized (containersToModuleIndex) {
+                containersToModuleIndex.put(containers, moduleIndex);
+            }
+            debug(() -> log.debug("Built search index of module " + module.getName() + " from " + containers));
+        }
+    }
+
+    /**
+     * 项目自定义关键字覆盖同名的内置及依赖中的关键字。只复制被覆盖的根节点，其余节点与 {@code projectLayer} 共享
+     */
+    private SearchIndexSnapshot applyOverlay(SearchIndexSnapshot projectLayer) {
+        if (projectKeywords.isEmpty()) {
+            return projectLayer;
+        }
+        SuggestionIndexBuilder builder = SuggestionIndexBuilder.derivedFrom(null, projectLayer);
+        MetadataConsumer consumer = builder.overridingConsumerFor(PROJECT_KEYWORDS_CONTAINER);
+        for (ProjectKeyword keyword : projectKeywords) {
+            if (StringUtils.isBlank(keyword.getName())) {
+                continue;
+            }
+            SpringConfigurationMetadataProperty property = new SpringConfigurationMetadataProperty();
+            property.setName(keyword.getName());
+            property.setOriginalName(
+                    StringUtils.isNotBlank(keyword.getOriginalName()) ? keyword.getOriginalName() : keyword.getName());
+            property.setDescription(keyword.getDescription());
+            property.setClassName(keyword.getType());
+            property.setIsAppendColon(keyword.getIsAppendColon());
+            if (keyword.isProperty()) {
+                consumer.consumeProperty(property);
+            } else {
+                consumer.consumeSimple(property);
+            }
+        }
+        return builder.toSnapshot();
+    }
+
+    /**
+     * Requests the framework pack the file of {@code element} needs. Included right away if the index is already
+     * published, otherwise by the build once it publishes the index
+     */
+    private void requestPackFor(PsiElement element) {
+        if (requestedPacks.size() == MetadataPack.values().length) {
+            return;
+        }
+        // only yaml files are scripts, anything else needs no framework pack
+        PsiFile file = element.getContainingFile();
+        if (!(file instanceof YAMLFile)) {
+            return;
+        }
+        List<String> topLevelKeys = YAMLUtil.getTopLevelKeys((YAMLFile) file).stream()
+                .map(YAMLKeyValue::getKeyText)
+                .collect(toList());
+        MetadataPack pack = MetadataPack.frameworkOf(topLevelKeys);
+        // the build checks for requested packs after publishing, so one of the two always sees the request
+        if (requestedPacks.add(pack) && snapshot.get() != null) {
+            includeRequestedPacks();
+        }
+    }
+
+    /**
+     * Rebases the index onto a version of the shared index that contains all requested packs, if the current base
+     * lacks any of them
+     */
+    private void includeRequestedPacks() {
+        if (snapshot.get() == null || basePacks.containsAll(requestedPacks)) {
+            return;
+        }
+        try {
+            // packs are loaded outside the lock, only rebasing onto them needs it
+            Set<MetadataPack> packs = EnumSet.copyOf(requestedPacks);
+            SearchIndexSnapshot nextBase = BundledSuggestionIndex.getInstance().include(packs);
+            synchronized (indexUpdateLock) {
+                // a concurrent call may have rebased onto a version with these packs already
+                if (snapshot.get() == null || basePacks.containsAll(packs)) {
+                    return;
+                }
+                basePacks = packs;
+                if (nextBase != base) {
+                    base = nextBase;
+                    publish(deriveFromBase(container -> true));
+                    debug(() -> log.debug("Rebased search index onto bundled version " + nextBase.getVersion()));
+                }
+            }
+            deliverChanges();
+        } catch (IOException | RuntimeException e) {
+            log.warn("加载内置配置失败 " + requestedPacks, e);
+        }
+    }
+
+    int getBuildCount() {
+        return buildCount.get();
+    }
+
+    @Override
+    public void dispose() {
+        synchronized (indexUpdateLock) {
+            if (bundledIndexAcquired) {
+                BundledSuggestionIndex.getInstance().release();
+                bundledIndexAcquired = false;
+            }
+            snapshot.set(null);
+            projectLayer = null;
+            base = null;
+            basePacks = EnumSet.noneOf(MetadataPack.class);
+            containerToMetadata.clear();
+            classpathContainers = emptyList();
+            moduleNameToContainers.clear();
+            synchronized (containersToModuleIndex) {
+                containersToModuleIndex.clear();
+            }
+        }
+    }
+
+    @Override
+    public void loadCustomMetadata(Project project, Collection<String> filePaths) {
+        Set<String> customMetadataPaths = getCustomMetadataPaths(project);
+        if (customMetadataPaths.addAll(filePaths)) {
+            PropertiesComponent.getInstance(project)
+                    .setValues(CUSTOM_METADATA_KEY, customMetadataPaths.toArray(new String[0]));
+        }
+        if (indexingStarted.get()) {
+            updateSearchIndex(filePaths);
+        } else {
+            initSearchIndex(project);
+        }
+    }
+
+    @Override
+    public void reloadCustomMetadata(Project project, Collection<String> changedFilePaths) {
+        Set<String> customMetadataPaths = getCustomMetadataPaths(project);
+        List<String> filePaths = changedFilePaths.stream().filter(customMetadataPaths::contains).distinct()
+                .collect(toList());
+        if (!filePaths.isEmpty()) {
+            ApplicationManager.getApplication().executeOnPooledThread(() -> updateSearchIndex(filePaths));
+        }
+    }
+
+    @Override
+    public void reloadProjectKeywords(Project project) {
+        if (!indexingStarted.get()) {
+            return;
+        }
+        List<ProjectKeyword> keywords = ServerPersistent.getInstance(project).getKeywords();
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            synchronized (indexUpdateLock) {
+                // only the keys of the removed & the current keywords can differ
+                Set<String> touchedPaths = new THashSet<>();
+                Set<String> touchedSimples = new THashSet<>();
+                collectKeywordKeys(projectKeywords, touchedPaths, touchedSimples);
+                collectKeywordKeys(keywords, touchedPaths, touchedSimples);
+                // reapplied to the project layer, so that removed keywords bring back what they overrode
+                projectKeywords = keywords;
+                if (projectLayer != null) {
+                    try {
+                        publish(projectLayer, touchedPaths, touchedSimples);
+                        debug(() -> log.debug("Applied " + keywords.size() + " project keywords"));
+                    } catch (RuntimeException e) {
+                        log.error("更新项目关键字失败", e);
+                    }
+                }
+            }
+            deliverChanges();
+        });
+    }
 
-                addPropertiesToIndex(module, rootSearchIndex, springConfigurationMetadata, "test");
-                addHintsToIndex(module, rootSearchIndex, springConfigurationMetadata, "hintTest");
-                addSimplesToIndex(simpleSearchIndex, springConfigurationMetadata, "simpleTest");
-                System.out.println(rootSearchIndex);
-            } catch (Exception e) {
-                log.error("初始化搜索索引失败");
+    private static void collectKeywordKeys(List<ProjectKeyword> keywords, Set<String> paths, Set<String> simples) {
+        for (ProjectKeyword keyword : keywords) {
+            if (StringUtils.isBlank(keyword.getName())) {
+                continue;
             }
+            if (keyword.isProperty()) {
+                String[] pathSegments = SuggestionIndexBuilder.toSanitizedPathSegments(keyword.getName());
+                paths.add(SuggestionIndexBuilder.toPathKey(pathSegments, pathSegments.length));
+            } else {
+                simples.add(SuggestionNode.sanitise(keyword.getName()));
+            }
+        }
+    }
 
+    /**
+     * Publishes a new version of the index in which everything the files contributed earlier is removed via the
+     * `belongsTo` bookkeeping of the nodes & their current content is added back. Nodes other sources contribute to are
+     * retained. Does nothing if the index is not built yet, as the build reads the latest content itself
+     */
+    private void updateSearchIndex(Collection<String> filePaths) {
+        // read & parse before taking any lock, so that searches are blocked only for the patching itself
+        Map<String, ByteBuffer> filePathToMetadata = loadCustomMetadata(filePaths);
+        synchronized (indexUpdateLock) {
+            patchSearchIndex(filePaths, filePathToMetadata);
+            debug(() -> log.debug("Reloaded custom metadata " + filePaths));
         }
+        deliverChanges();
+    }
+
+    /**
+     * Removes everything {@code containersToRemove} contributed & then adds {@code containerToMetadataToAdd}. Callers
+     * must hold {@link #indexUpdateLock}
+     */
+    private void patchSearchIndex(Collection<String> containersToRemove,
+                                  Map<String, ByteBuffer> containerToMetadataToAdd) {
+        customMetadataVersion++;
+        SearchIndexSnapshot current = projectLayer;
+        if (current == null) {
+            if (indexDropped) {
+                // picked up by the rebuild
+                containerToMetadata.keySet().removeAll(containersToRemove);
+                containerToMetadata.putAll(containerToMetadataToAdd);
+            }
+            return;
+        }
+
+        try {
+            // only the roots touched by the delta are copied, searches in flight keep reading the current version
+            SuggestionIndexBuilder builder = SuggestionIndexBuilder.derivedFrom(null, current);
+            containersToRemove.forEach(builder::removeContainer);
+            containerToMetadataToAdd.forEach(
+                    (container, metadata) -> BinaryMetadataReader.read(metadata, builder.consumerFor(container)));
+            publish(builder.toSnapshot(), builder.getTouchedPaths(), builder.getTouchedSimples());
+            SearchIndexSnapshot next = snapshot.get();
+            // kept in sync, so that a rebase reads the same metadata
+            containerToMetadata.keySet().removeAll(containersToRemove);
+            containerToMetadata.putAll(containerToMetadataToAdd);
+            debug(() -> log.debug("Published search index version " + next.getVersion()));
+        } catch (Exception e) {
+            log.error("更新配置索引失败", e);
+        }
+    }
+
+    /**
+     * @return file path -> metadata in {@link BinaryMetadataReader} format. Files that dont exist or cannot be read are
+     * left out
+     */
+    private Map<String, ByteBuffer> loadCustomMetadata(Collection<String> filePaths) {
+        Map<String, ByteBuffer> filePathToMetadata = new LinkedHashMap<>();
+        for (String filePath : filePaths) {
+            File file = new File(filePath);
+            if (file.isFile()) {
+                try {
+                    filePathToMetadata.put(filePath, metadataCache.load(FileUtil.loadFileBytes(file)));
+                } catch (IOException | RuntimeException e) {
+                    log.warn("加载自定义配置失败 " + filePath, e);
+                }
+            }
+        }
+        return filePathToMetadata;
+    }
+
+    private Set<String> getCustomMetadataPaths(Project project) {
+        String[] paths = PropertiesComponent.getInstance(project).getValues(CUSTOM_METADATA_KEY);
+        return paths != null ? new LinkedHashSet<>(Arrays.asList(paths)) : new LinkedHashSet<>();
     }
 
     @Override
@@ -127,34 +781,69 @@ public class SuggestionServiceImpl implements SuggestionService {
     public List<LookupElementBuilder> findSuggestionsForQueryPrefix(Project project, Module module,
                                                                     FileType fileType, PsiElement element, @Nullable List<String> ancestralKeys,
                                                                     String queryWithDotDelimitedPrefixes, String pre, @Nullable Set<String> siblingsToExclude) {
-        initSearchIndex(module);
+        initSearchIndex(project);
+        restoreSearchIndex();
+        requestPackFor(element);
 
-        List<LookupElementBuilder> lookupElementBuilders = doFindSuggestions(module,
-                moduleNameToRootSearchIndex.get(SIMPLE_NAME), fileType, pre);
+        // the whole search runs against one version, even if a newer one is published meanwhile
+        SearchIndexSnapshot current = indexFor(module);
+        if (current == null) {
+            return null;
+        }
 
-        List<LookupElementBuilder> lookupElementBuilder = doFindSuggestionsForQueryPrefix(module,
-                moduleNameToRootSearchIndex.get(MODULE_NAME), fileType, element, ancestralKeys,
-                queryWithDotDelimitedPrefixes, siblingsToExclude);
+        // 超出时间预算时返回已找到的结果
+        return SearchBudget.withBudget(SystemConfig.getSearchBudgetMillis(), () -> {
+            List<LookupElementBuilder> lookupElementBuilders =
+                    doFindSuggestions(module, current, fileType, pre);
+            List<LookupElementBuilder> lookupElementBuilder =
+                    doFindSuggestionsForQueryPrefix(module, current, fileType, element, ancestralKeys,
+                            queryWithDotDelimitedPrefixes, siblingsToExclude);
 
-        if (CollectionUtils.isEmpty(lookupElementBuilders)) {
-            return lookupElementBuilder;
-        }
-        if (CollectionUtils.isEmpty(lookupElementBuilder)) {
+            // 前缀/包含匹配都没有结果时，再容错查找(如输错一个字母) & 按描述查找
+            if (CollectionUtils.isEmpty(lookupElementBuilders) && CollectionUtils.isEmpty(lookupElementBuilder)
+                    && ancestralKeys == null) {
+                Set<Suggestion> typoTolerantSuggestions = doFindTypoTolerantSuggestions(module, current, fileType,
+                        queryWithDotDelimitedPrefixes, pre, siblingsToExclude);
+                List<LookupElementBuilder> describedBuilders =
+                        doFindSuggestionsByDescription(module, current, fileType, pre, siblingsToExclude,
+                                typoTolerantSuggestions);
+                List<LookupElementBuilder> typoTolerantBuilders = toLookupElementBuilders(typoTolerantSuggestions);
+                if (typoTolerantBuilders == null) {
+                    return describedBuilders != null ? describedBuilders : lookupElementBuilder;
+                }
+                if (describedBuilders != null) {
+                    typoTolerantBuilders.addAll(describedBuilders);
+                }
+                return typoTolerantBuilders;
+            }
+            if (CollectionUtils.isEmpty(lookupElementBuilders)) {
+                return lookupElementBuilder;
+            }
+            if (CollectionUtils.isEmpty(lookupElementBuilder)) {
+                return lookupElementBuilders;
+            }
+            lookupElementBuilders.addAll(lookupElementBuilder);
             return lookupElementBuilders;
-        }
-        lookupElementBuilders.addAll(lookupElementBuilder);
-        return lookupElementBuilders;
-
+        });
     }
 
-    private List<LookupElementBuilder> doFindSuggestions(Module module,
-                                                         Trie<String, MetadataSuggestionNode> rootSearchIndex, FileType fileType, String queryWithDotDelimitedPrefixes) {
+    private List<LookupElementBuilder> doFindSuggestions(Module module, SearchIndexSnapshot current, FileType fileType,
+                                                         String queryWithDotDelimitedPrefixes) {
         debug(() -> log.debug("Search requested for " + queryWithDotDelimitedPrefixes));
         StopWatch timer = new StopWatch();
         timer.start();
         try {
-            // 简单匹配只需要对顶层进行查询
-            Set<Suggestion> suggestions = doFindSuggestionsForQueryPrefix2(module, fileType, rootSearchIndex.values(), queryWithDotDelimitedPrefixes);
+            // 简单匹配只需要对顶层进行查询，只校验 n-gram 索引给出的候选关键字
+            Trie<String, MetadataSuggestionNode> simpleSearchIndex = current.getSimpleSearchIndex();
+            Collection<MetadataSuggestionNode> candidates;
+            if (queryWithDotDelimitedPrefixes.isEmpty()) {
+                candidates = simpleSearchIndex.values();
+            } else {
+                candidates = current.getKeywordGramIndex().candidatesContaining(queryWithDotDelimitedPrefixes)
+                        .stream().map(simpleSearchIndex::get).filter(Objects::nonNull).collect(toList());
+            }
+            Set<Suggestion> suggestions =
+                    doFindSuggestionsForQueryPrefix2(module, fileType, candidates, queryWithDotDelimitedPrefixes);
             if (suggestions != null) {
                 return toLookupElementBuilders(suggestions);
             }
@@ -167,19 +856,20 @@ public class SuggestionServiceImpl implements SuggestionService {
 
     }
 
-    private List<LookupElementBuilder> doFindSuggestionsForQueryPrefix(Module module,
-                                                                       Trie<String, MetadataSuggestionNode> rootSearchIndex, FileType fileType, PsiElement element,
+    private List<LookupElementBuilder> doFindSuggestionsForQueryPrefix(Module module, SearchIndexSnapshot current,
+                                                                       FileType fileType, PsiElement element,
                                                                        @Nullable List<String> ancestralKeys, String queryWithDotDelimitedPrefixes,
                                                                        @Nullable Set<String> siblingsToExclude) {
         debug(() -> log.debug("Search requested for " + queryWithDotDelimitedPrefixes));
         StopWatch timer = new StopWatch();
         timer.start();
         try {
-            String[] querySegmentPrefixes = toSanitizedPathSegments(queryWithDotDelimitedPrefixes);
+            Trie<String, MetadataSuggestionNode> rootSearchIndex = current.getRootSearchIndex();
+            String[] querySegmentPrefixes = SuggestionIndexBuilder.toSanitizedPathSegments(queryWithDotDelimitedPrefixes);
             Set<Suggestion> suggestions = null;
             if (ancestralKeys != null) {
                 String[] ancestralKeySegments =
-                        ancestralKeys.stream().flatMap(key -> stream(toRawPathSegments(key)))
+                        ancestralKeys.stream().flatMap(key -> stream(SuggestionIndexBuilder.toRawPathSegments(key)))
                                 .toArray(String[]::new);
                 MetadataSuggestionNode rootNode = rootSearchIndex.get(SuggestionNode.sanitise(ancestralKeySegments[0]));
                 if (rootNode != null) {
@@ -188,9 +878,14 @@ public class SuggestionServiceImpl implements SuggestionService {
                     if (ancestralKeySegments.length > 1) {
                         String[] sanitisedAncestralPathSegments =
                                 stream(ancestralKeySegments).map(SuggestionNode::sanitise).toArray(String[]::new);
-                        matchesRootToDeepest = rootNode
-                                .findDeepestSuggestionNode(module, GenericUtil.modifiableList(rootNode),
-                                        sanitisedAncestralPathSegments, 1);
+                        // 祖先 key 完全落在元数据树内时直接命中，否则(如经过 map 的 key)再逐级查找
+                        matchesRootToDeepest = DeepKeySearch.resolve(current, SuggestionIndexBuilder
+                                .toPathKey(sanitisedAncestralPathSegments, sanitisedAncestralPathSegments.length));
+                        if (matchesRootToDeepest == null) {
+                            matchesRootToDeepest = rootNode
+                                    .findDeepestSuggestionNode(module, GenericUtil.modifiableList(rootNode),
+                                            sanitisedAncestralPathSegments, 1);
+                        }
                         if (matchesRootToDeepest != null && matchesRootToDeepest.size() != 0) {
                             startSearchFrom = matchesRootToDeepest.get(matchesRootToDeepest.size() - 1);
                         }
@@ -214,40 +909,36 @@ public class SuggestionServiceImpl implements SuggestionService {
                 }
             } else {
                 String rootQuerySegmentPrefix = querySegmentPrefixes[0];
-                SortedMap<String, MetadataSuggestionNode> topLevelQueryResults =
-                        rootSearchIndex.prefixMap(rootQuerySegmentPrefix);
-
-                Collection<MetadataSuggestionNode> childNodes;
-                int querySegmentPrefixStartIndex;
+                // 忽略大小写 & 驼峰缩写匹配顶层 key
+                Collection<String> topLevelQueryResults = current.getRootMatcher().matching(rootQuerySegmentPrefix);
 
-                // 如果在顶层没有找到匹配的key，再对儿子级进行匹配查询
-                if (topLevelQueryResults == null || topLevelQueryResults.size() == 0) {
-                    childNodes = rootSearchIndex.values();
-                    querySegmentPrefixStartIndex = 0;
-                } else {
-                    childNodes = topLevelQueryResults.values();
-                    querySegmentPrefixStartIndex = 1;
-                }
+                Set<MetadataSuggestionNode> nodesToExclude = siblingsToExclude == null ? emptySet()
+                        : siblingsToExclude.stream()
+                                .flatMap(exclude -> rootSearchIndex.prefixMap(exclude).values().stream())
+                                .collect(toSet());
 
-                Collection<MetadataSuggestionNode> nodesToSearchAgainst;
-                if (siblingsToExclude != null) {
-                    Set<MetadataSuggestionNode> nodesToExclude = siblingsToExclude.stream()
-                            .flatMap(exclude -> rootSearchIndex.prefixMap(exclude).values().stream())
-                            .collect(toSet());
-                    nodesToSearchAgainst =
-                            childNodes.stream().filter(node -> !nodesToExclude.contains(node)).collect(toList());
+                // 如果在顶层没有找到匹配的key，再对儿子级进行匹配查询，通过路径段索引直接定位候选节点
+                if (topLevelQueryResults.isEmpty()) {
+                    suggestions = DeepKeySearch
+                            .search(module, fileType, current, querySegmentPrefixes, nodesToExclude);
                 } else {
-                    nodesToSearchAgainst = childNodes;
+                    Collection<MetadataSuggestionNode> nodesToSearchAgainst = topLevelQueryResults.stream()
+                            .map(rootSearchIndex::get).filter(node -> node != null && !nodesToExclude.contains(node))
+                            .collect(toList());
+                    // 匹配的根节点较多时并行查找
+                    suggestions = ParallelKeySearch.search(nodesToSearchAgainst,
+                            nodes -> doFindSuggestionsForQueryPrefix(module, fileType, nodes, querySegmentPrefixes,
+                                    1));
                 }
-
-                suggestions = doFindSuggestionsForQueryPrefix(module, fileType, nodesToSearchAgainst,
-                        querySegmentPrefixes, querySegmentPrefixStartIndex);
             }
 
             if (suggestions != null) {
                 return toLookupElementBuilders(suggestions);
             }
             return null;
+        } catch (ProcessCanceledException e) {
+            // completion was cancelled, e.g the user typed the next character
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
             return null;
@@ -257,10 +948,103 @@ public class SuggestionServiceImpl implements SuggestionService {
         }
     }
 
+    /**
+     * Second tier search, finds simples & roots whose names start within a small edit distance of the query
+     */
+    @Nullable
+    private Set<Suggestion> doFindTypoTolerantSuggestions(Module module, SearchIndexSnapshot current,
+                                                          FileType fileType, String queryWithDotDelimitedPrefixes, String pre,
+                                                          @Nullable Set<String> siblingsToExclude) {
+        Trie<String, MetadataSuggestionNode> simpleSearchIndex = current.getSimpleSearchIndex();
+        List<MetadataSuggestionNode> simples = FuzzyPrefixMatcher.keysWithinDistance(simpleSearchIndex, pre).stream()
+                .map(simpleSearchIndex::get).collect(toList());
+        // an empty query is contained in every name, i.e builds the suggestions of all matched simples
+        Set<Suggestion> suggestions = doFindSuggestionsForQueryPrefix2(module, fileType, simples, "");
+
+        String[] querySegmentPrefixes = SuggestionIndexBuilder.toSanitizedPathSegments(queryWithDotDelimitedPrefixes);
+        Trie<String, MetadataSuggestionNode> rootSearchIndex = current.getRootSearchIndex();
+        List<MetadataSuggestionNode> roots =
+                FuzzyPrefixMatcher.keysWithinDistance(rootSearchIndex, querySegmentPrefixes[0]).stream()
+                        .filter(key -> siblingsToExclude == null
+                                || siblingsToExclude.stream().noneMatch(key::startsWith))
+                        .map(rootSearchIndex::get).collect(toList());
+        Set<Suggestion> keySuggestions =
+                doFindSuggestionsForQueryPrefix(module, fileType, roots, querySegmentPrefixes, 1);
+
+        debug(() -> log.debug("Typo tolerant search for " + queryWithDotDelimitedPrefixes + " matched " + simples.size()
+                + " simples & " + roots.size() + " roots"));
+        if (suggestions == null) {
+            return keySuggestions;
+        }
+        if (keySuggestions != null) {
+            suggestions.addAll(keySuggestions);
+        }
+        return suggestions;
+    }
+
+    /**
+     * Second tier search as well, finds simples & properties whose description matches the query, e.g {@code 设备}
+     * finds the key described as {@code 设备id}. The name of such a key does not match what was typed, so the query is
+     * added as a lookup string, otherwise the completion popup would filter the key out
+     *
+     * @param suggestionsToSkip suggestions already found by other means, null if there are none
+     */
+    @Nullable
+    private List<LookupElementBuilder> doFindSuggestionsByDescription(Module module, SearchIndexSnapshot current,
+                                                                      FileType fileType, String pre, @Nullable Set<String> siblingsToExclude,
+                                                                      @Nullable Set<Suggestion> suggestionsToSkip) {
+        DescriptionIndex descriptionIndex = current.getDescriptionIndex();
+        Trie<String, MetadataSuggestionNode> simpleSearchIndex = current.getSimpleSearchIndex();
+        List<MetadataSuggestionNode> simples = descriptionIndex.simplesDescribedBy(pre).stream()
+                .map(simpleSearchIndex::get)
+                .filter(node -> node instanceof MetadataPropertySuggestionNode && DescriptionIndex
+                        .matches(MetadataPropertySuggestionNode.class.cast(node).getProperty().getDescription(), pre))
+                .collect(toList());
+        // an empty query is contained in every name, i.e builds the suggestions of all matched simples
+        Set<Suggestion> suggestions = doFindSuggestionsForQueryPrefix2(module, fileType, simples, "");
+
+        Collection<String> paths = descriptionIndex.propertiesDescribedBy(pre);
+        for (String path : paths) {
+            if (SearchBudget.outOfTime()) {
+                break;
+            }
+            if (siblingsToExclude != null && siblingsToExclude.stream().anyMatch(path::startsWith)) {
+                continue;
+            }
+            List<SuggestionNode> nodesFromRoot = DeepKeySearch.resolve(current, path);
+            SuggestionNode node = nodesFromRoot != null ? nodesFromRoot.get(nodesFromRoot.size() - 1) : null;
+            if (!(node instanceof MetadataPropertySuggestionNode)) {
+                continue;
+            }
+            SpringConfigurationMetadataProperty property = MetadataPropertySuggestionNode.class.cast(node).getProperty();
+            if (property.isDeprecatedError() || !DescriptionIndex.matches(property.getDescription(), pre)) {
+                continue;
+            }
+            if (suggestions == null) {
+                suggestions = new THashSet<>();
+            }
+            suggestions.add(property.buildKeySuggestion(module, fileType, unmodifiableList(nodesFromRoot), 0));
+        }
+
+        debug(() -> log.debug("Description search for " + pre + " matched " + simples.size() + " simples & "
+                + paths.size() + " candidate properties"));
+        if (suggestions == null) {
+            return null;
+        }
+        if (suggestionsToSkip != null) {
+            suggestions.removeAll(suggestionsToSkip);
+        }
+        return suggestions.stream().map(suggestion -> suggestion.newLookupElement().withLookupString(pre))
+                .collect(toList());
+    }
+
     private Set<Suggestion> doFindSuggestionsForQueryPrefix2(Module module, FileType fileType,
                                                              Collection<MetadataSuggestionNode> nodesToSearchWithin, String queryWithDotDelimitedPrefixes) {
         Set<Suggestion> suggestions = null;
         for (MetadataSuggestionNode suggestionNode : nodesToSearchWithin) {
+            if (SearchBudget.outOfTime()) {
+                break;
+            }
             Set<Suggestion> matchedSuggestions = suggestionNode
                     .findKeySuggestionsForQueryPrefix(module, fileType, GenericUtil.modifiableList(suggestionNode), 0,
                             queryWithDotDelimitedPrefixes);
@@ -281,6 +1065,9 @@ public class SuggestionServiceImpl implements SuggestionService {
                                                             int querySegmentPrefixStartIndex) {
         Set<Suggestion> suggestions = null;
         for (MetadataSuggestionNode suggestionNode : nodesToSearchWithin) {
+            if (SearchBudget.outOfTime()) {
+                break;
+            }
             Set<Suggestion> matchedSuggestions = suggestionNode
                     .findKeySuggestionsForQueryPrefix(module, fileType, GenericUtil.modifiableList(suggestionNode), 0,
                             querySegmentPrefixes, querySegmentPrefixStartIndex);
@@ -303,138 +1090,23 @@ public class SuggestionServiceImpl implements SuggestionService {
         return null;
     }
 
-    private void addHintsToIndex(Module module, Trie<String, MetadataSuggestionNode> rootSearchIndex,
-                                 SpringConfigurationMetadata springConfigurationMetadata, String containerPath) {
-        List<SpringConfigurationMetadataHint> hints = springConfigurationMetadata.getHints();
-        if (hints != null) {
-            hints.sort(comparing(SpringConfigurationMetadataHint::getName));
-            for (SpringConfigurationMetadataHint hint : hints) {
-                String[] pathSegments = toSanitizedPathSegments(hint.getExpectedPropertyName());
-                MetadataSuggestionNode closestMetadata =
-                        findDeepestMetadataMatch(rootSearchIndex, pathSegments, true);
-                if (closestMetadata != null) {
-                    if (!closestMetadata.isProperty()) {
-                        log.warn(
-                                "Unexpected hint " + hint.getName() + " is assigned to  group " + closestMetadata
-                                        .getPathFromRoot(module)
-                                        + " found. Hints can be only assigned to property. Ignoring the hint completely.Existing group belongs to ("
-                                        + closestMetadata.getBelongsTo().stream().collect(joining(","))
-                                        + "), New hint belongs " + containerPath);
-                    } else {
-                        MetadataPropertySuggestionNode propertySuggestionNode =
-                                MetadataPropertySuggestionNode.class.cast(closestMetadata);
-                        if (hint.representsValueOfMap()) {
-                            propertySuggestionNode.getProperty().setValueHint(hint);
-                        } else {
-                            propertySuggestionNode.getProperty().setGenericOrKeyHint(hint);
-                        }
-                    }
-                }
-            }
-        }
-    }
-
-    private void addPropertiesToIndex(Module module,
-                                      Trie<String, MetadataSuggestionNode> rootSearchIndex,
-                                      SpringConfigurationMetadata springConfigurationMetadata, String containerArchiveOrFileRef) {
-        List<SpringConfigurationMetadataProperty> properties =
-                springConfigurationMetadata.getProperties();
-        properties.sort(comparing(SpringConfigurationMetadataProperty::getName));
-        for (SpringConfigurationMetadataProperty property : properties) {
-            String[] pathSegments = toSanitizedPathSegments(property.getName());
-            String[] rawPathSegments = toRawPathSegments(property.getName());
-            MetadataSuggestionNode closestMetadata =
-                    findDeepestMetadataMatch(rootSearchIndex, pathSegments, false);
-
-            int startIndex;
-            if (closestMetadata == null) {
-                // 是否没有子节点，只有根节点存在
-                boolean onlyRootSegmentExists = pathSegments.length == 1;
-                if (onlyRootSegmentExists) {
-                    closestMetadata = MetadataPropertySuggestionNode
-                            .newInstance(rawPathSegments[0], property, null, containerArchiveOrFileRef);
-                } else {
-                    closestMetadata = MetadataNonPropertySuggestionNode
-                            .newInstance(rawPathSegments[0], null, containerArchiveOrFileRef);
-                }
-                rootSearchIndex.put(pathSegments[0], closestMetadata);
-
-                // 因为我们已经处理了根级项目，所以让addChildren从pathSegments的索引1开始
-                startIndex = 1;
-            } else {
-                startIndex = closestMetadata.numOfHopesToRoot() + 1;
-            }
-
-            boolean haveMoreSegmentsLeft = startIndex < rawPathSegments.length;
-
-            if (haveMoreSegmentsLeft) {
-                if (!closestMetadata.isProperty()) {
-                    MetadataNonPropertySuggestionNode.class.cast(closestMetadata)
-                            .addChildren(property, rawPathSegments, startIndex, containerArchiveOrFileRef);
-                } else {
-                    log.warn("Detected conflict between a new group & existing property for suggestion path "
-                            + closestMetadata.getPathFromRoot(module)
-                            + ". Ignoring property. Existing non property node belongs to (" + closestMetadata
-                            .getBelongsTo().stream().collect(joining(",")) + "), New property belongs to "
-                            + containerArchiveOrFileRef);
-                }
-            } else {
-                if (!closestMetadata.isProperty()) {
-                    log.warn(
-                            "Detected conflict between a new metadata property & existing non property node for suggestion path "
-                                    + closestMetadata.getPathFromRoot(module)
-                                    + ". Ignoring property. Existing non property node belongs to (" + closestMetadata
-                                    .getBelongsTo().stream().collect(joining(",")) + "), New property belongs to "
-                                    + containerArchiveOrFileRef);
-                } else {
-                    closestMetadata.addRefCascadeTillRoot(containerArchiveOrFileRef);
-                    log.debug("Detected a duplicate metadata property for suggestion path " + closestMetadata
-                            .getPathFromRoot(module) + ". Ignoring property. Existing property belongs to ("
-                            + closestMetadata.getBelongsTo().stream().collect(joining(","))
-                            + "), New property belongs to " + containerArchiveOrFileRef);
-                }
-            }
-        }
-    }
-
-
-    private void addSimplesToIndex(
-            Trie<String, MetadataSuggestionNode> rootSearchIndex,
-            SpringConfigurationMetadata springConfigurationMetadata, String containerArchiveOrFileRef) {
-        List<SpringConfigurationMetadataProperty> simples =
-                springConfigurationMetadata.getSimples();
-        simples.sort(comparing(SpringConfigurationMetadataProperty::getName));
-        for (SpringConfigurationMetadataProperty simple : simples) {
-            String originalName = StringUtils.isEmpty(simple.getOriginalName()) ? simple.getName() : simple.getOriginalName();
-            MetadataSuggestionNode closestMetadata = MetadataPropertySuggestionNode
-                    .newInstance(simple.getName(), originalName, simple, null, containerArchiveOrFileRef);
-            rootSearchIndex.put(simple.getName(), closestMetadata);
-        }
-    }
-
-    private MetadataSuggestionNode findDeepestMetadataMatch(Map<String, MetadataSuggestionNode> roots,
-                                                            String[] pathSegments, boolean matchAllSegments) {
-        MetadataSuggestionNode closestMatchedRoot = roots.get(pathSegments[0]);
-        if (closestMatchedRoot != null) {
-            closestMatchedRoot =
-                    closestMatchedRoot.findDeepestMetadataNode(pathSegments, 1, matchAllSegments);
-        }
-        return closestMatchedRoot;
-    }
-
-
-    @SuppressWarnings("unused")
     private String toTree() {
         StringBuilder builder = new StringBuilder();
-        moduleNameToRootSearchIndex.forEach((k, v) -> {
-            builder.append("Module: ").append(k).append("\n");
-            v.values().forEach(root -> builder
-                    .append(root.toTree().trim().replaceAll("^", "  ").replaceAll("\n", "\n  "))
-                    .append("\n"));
-        });
+        SearchIndexSnapshot current = snapshot.get();
+        if (current != null) {
+            appendTree(builder, MODULE_NAME, current.getRootSearchIndex());
+            appendTree(builder, SIMPLE_NAME, current.getSimpleSearchIndex());
+        }
         return builder.toString();
     }
 
+    private static void appendTree(StringBuilder builder, String name, Trie<String, MetadataSuggestionNode> searchIndex) {
+        builder.append("Module: ").append(name).append("\n");
+        searchIndex.values().forEach(root -> builder
+                .append(root.toTree().trim().replaceAll("^", "  ").replaceAll("\n", "\n  "))
+                .append("\n"));
+    }
+
     /**
      * Debug logging can be enabled by adding fully classified class name/package name with # prefix For eg., to enable
      * debug logging, go `Help > Debug log settings` & type `#in.oneton.idea.spring.assistant.plugin.suggestion.service.SuggestionServiceImpl`
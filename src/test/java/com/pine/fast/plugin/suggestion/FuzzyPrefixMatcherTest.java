@@ -0,0 +1,133 @@
+package com.pine.fast.plugin.suggestion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.apache.commons.collections4.Trie;
+import org.apache.commons.collections4.trie.PatriciaTrie;
+import org.junit.jupiter.api.Test;
+
+class FuzzyPrefixMatcherTest {
+
+  @Test
+  void findsKeysOneEditAway() {
+    Trie<String, String> trie = trie("click", "check", "clear", "doubleClick", "sendKeys");
+    assertEquals(keys("click"), keys(FuzzyPrefixMatcher.keysWithinDistance(trie, "clik")));
+    assertEquals(keys("click"), keys(FuzzyPrefixMatcher.keysWithinDistance(trie, "cliock")));
+    assertEquals(keys("sendKeys"), keys(FuzzyPrefixMatcher.keysWithinDistance(trie, "SENDK")));
+  }
+
+  @Test
+  void countsATranspositionAsOneEdit() {
+    Trie<String, String> trie = trie("click", "clear");
+    assertEquals(keys("click"), keys(FuzzyPrefixMatcher.keysWithinDistance(trie, "clcik")));
+    // two transpositions are two edits, only allowed for long queries
+    assertTrue(FuzzyPrefixMatcher.keysWithinDistance(trie, "lccik").isEmpty());
+    assertEquals(keys("doubleClick"),
+        keys(FuzzyPrefixMatcher.keysWithinDistance(trie("doubleClick"), "oduebleClick")));
+  }
+
+  @Test
+  void allowsTwoEditsForLongQueriesOnly() {
+    Trie<String, String> trie = trie("queryDisplayed", "moveToElement");
+    assertEquals(keys("queryDisplayed"), keys(FuzzyPrefixMatcher.keysWithinDistance(trie, "qeuryDsiplay")));
+    assertTrue(FuzzyPrefixMatcher.keysWithinDistance(trie, "mvoeTp").isEmpty());
+    assertEquals(keys("moveToElement"), keys(FuzzyPrefixMatcher.keysWithinDistance(trie, "mvoeToElem")));
+  }
+
+  @Test
+  void ignoresShortQueries() {
+    assertTrue(FuzzyPrefixMatcher.keysWithinDistance(trie("if", "ifiOS"), "fi").isEmpty());
+    assertTrue(FuzzyPrefixMatcher.keysWithinDistance(trie(), "click").isEmpty());
+  }
+
+  @Test
+  void continuesBelowAPrefixThatIsAKeyItself() {
+    // `click` is a key & the prefix of others, the walk skips past it with a `\u0001` tail lookup
+    Trie<String, String> trie = trie("cl", "cli", "click", "click.id", "click.xpath", "clickAndHold");
+    assertEquals(keys("click", "click.id", "click.xpath", "clickAndHold"),
+        keys(FuzzyPrefixMatcher.keysWithinDistance(trie, "clcik")));
+    assertEquals(keys("click.id"), keys(FuzzyPrefixMatcher.keysWithinDistance(trie, "clck.i")));
+  }
+
+  @Test
+  void agreesWithABruteForceOptimalStringAlignmentDistance() {
+    Random random = new Random(2021);
+    String alphabet = "abcAB.";
+    Trie<String, String> trie = new PatriciaTrie<>();
+    for (int i = 0; i < 300; i++) {
+      String key = randomText(random, alphabet, 1 + random.nextInt(9));
+      trie.put(key, key);
+    }
+    for (int i = 0; i < 2000; i++) {
+      String query = randomText(random, alphabet, FuzzyPrefixMatcher.MIN_QUERY_LENGTH + random.nextInt(7));
+      int maxDistance = query.length() >= FuzzyPrefixMatcher.TWO_EDITS_QUERY_LENGTH ? 2 : 1;
+      Set<String> expected = new HashSet<>();
+      for (String key : trie.keySet()) {
+        for (int end = 1; end <= key.length(); end++) {
+          if (osaDistance(query, key.substring(0, end)) <= maxDistance) {
+            expected.add(key);
+            break;
+          }
+        }
+      }
+      List<String> actual = FuzzyPrefixMatcher.keysWithinDistance(trie, query);
+      assertEquals(expected, keys(actual), query);
+      assertEquals(expected.size(), actual.size(), () -> query + " reported a key twice");
+    }
+  }
+
+  /**
+   * Textbook optimal string alignment distance, ignoring case
+   */
+  private static int osaDistance(String a, String b) {
+    a = a.toLowerCase();
+    b = b.toLowerCase();
+    int[][] d = new int[a.length() + 1][b.length() + 1];
+    for (int i = 0; i <= a.length(); i++) {
+      d[i][0] = i;
+    }
+    for (int j = 0; j <= b.length(); j++) {
+      d[0][j] = j;
+    }
+    for (int i = 1; i <= a.length(); i++) {
+      for (int j = 1; j <= b.length(); j++) {
+        int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+        d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+        if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+          d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+        }
+      }
+    }
+    return d[a.length()][b.length()];
+  }
+
+  private static Trie<String, String> trie(String... keys) {
+    Trie<String, String> trie = new PatriciaTrie<>();
+    for (String key : keys) {
+      trie.put(key, key);
+    }
+    return trie;
+  }
+
+  private static String randomText(Random random, String alphabet, int length) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+    }
+    return builder.toString();
+  }
+
+  private static Set<String> keys(String... keys) {
+    return new HashSet<>(Arrays.asList(keys));
+  }
+
+  private static Set<String> keys(List<String> keys) {
+    return new HashSet<>(keys);
+  }
+}
@@ -0,0 +1,140 @@
+package com.pine.fast.plugin.suggestion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SegmentMatcherTest {
+  private SegmentMatcher<String> matcher;
+
+  @BeforeEach
+  void setUp() {
+    matcher = new SegmentMatcher<>();
+    for (String originalName : Arrays.asList("desiredCapabilities", "platformName", "ifiOS", "ifAndroid", "server-port",
+        "serverPort", "XMLParser", "setVar")) {
+      put(matcher, originalName);
+    }
+  }
+
+  @Test
+  void matchesPrefixesIgnoringCase() {
+    assertEquals(names("ifiOS"), names(matcher.matching("ifios")));
+    assertEquals(names("ifiOS", "ifAndroid"), names(matcher.matching("IF")));
+    assertEquals(names("desiredCapabilities"), names(matcher.matching("desired")));
+  }
+
+  @Test
+  void matchesCamelHumps() {
+    assertEquals(names("desiredCapabilities"), names(matcher.matching("dC")));
+    assertEquals(names("desiredCapabilities"), names(matcher.matching("desCap")));
+    assertEquals(names("platformName"), names(matcher.matching("pN")));
+    assertEquals(names("XMLParser"), names(matcher.matching("XP")));
+    assertTrue(matcher.matching("dX").isEmpty());
+  }
+
+  @Test
+  void readsLowerCasedQueriesAsInitials() {
+    // `-` & camel humps split words alike
+    assertEquals(names("server-port", "serverPort"), names(matcher.matching("sp")));
+    assertEquals(names("ifAndroid"), names(matcher.matching("ia")));
+  }
+
+  @Test
+  void matchesEverythingForAnEmptyQuery() {
+    assertEquals(8, matcher.matching("").size());
+    assertEquals(8, matcher.size());
+  }
+
+  @Test
+  void removesBothKeys() {
+    matcher.remove("desiredCapabilities", "desiredCapabilities");
+    assertTrue(matcher.matching("dC").isEmpty());
+    assertTrue(matcher.matching("desired").isEmpty());
+    assertEquals(7, matcher.size());
+  }
+
+  @Test
+  void copyLeavesTheBaseUntouched() {
+    SegmentMatcher<String> copy = new SegmentMatcher<>(matcher);
+    put(copy, "deviceCapacity");
+    copy.remove("ifiOS", "ifiOS");
+
+    assertEquals(names("desiredCapabilities", "deviceCapacity"), names(copy.matching("dC")));
+    assertEquals(names("desiredCapabilities"), names(matcher.matching("dC")));
+    assertEquals(names("ifiOS"), names(matcher.matching("ifiO")));
+  }
+
+  @Test
+  void splitsWords() {
+    assertEquals(Arrays.asList("ifi", "OS"), SegmentMatcher.words("ifiOS"));
+    assertEquals(Arrays.asList("XML", "Parser"), SegmentMatcher.words("XMLParser"));
+    assertEquals(Arrays.asList("server", "port"), SegmentMatcher.words("server-port"));
+    assertEquals(Arrays.asList("key", "Store", "type"), SegmentMatcher.words("key_Store type"));
+    assertEquals("dc", SegmentMatcher.initials("desiredCapabilities"));
+  }
+
+  @Test
+  void indexAgreesWithThePredicate() {
+    Random random = new Random(7);
+    String alphabet = "abcABC-";
+    SegmentMatcher<String> randomMatcher = new SegmentMatcher<>();
+    List<String> originalNames = new ArrayList<>();
+    // siblings never share a sanitised name
+    Set<String> names = new HashSet<>();
+    for (int i = 0; i < 300; i++) {
+      String originalName = randomText(random, alphabet, 1 + random.nextInt(8));
+      if (SuggestionNode.sanitise(originalName).isEmpty() || !names.add(SuggestionNode.sanitise(originalName))) {
+        continue;
+      }
+      originalNames.add(originalName);
+      put(randomMatcher, originalName);
+    }
+    for (int i = 0; i < 2000; i++) {
+      String query = SuggestionNode.sanitise(randomText(random, "abcABC", 1 + random.nextInt(4)));
+      Set<String> expected = new HashSet<>();
+      for (String originalName : originalNames) {
+        if (SegmentMatcher.matches(query, SuggestionNode.sanitise(originalName), originalName)) {
+          expected.add(originalName);
+        }
+      }
+      assertEquals(expected, names(randomMatcher.matching(query)), query);
+    }
+  }
+
+  @Test
+  void predicateRejectsOtherSegments() {
+    assertFalse(SegmentMatcher.matches("pn", "serverport", "serverPort"));
+    assertFalse(SegmentMatcher.matches("x", "ifios", "ifiOS"));
+    assertTrue(SegmentMatcher.matches("sP", "serverport", "serverPort"));
+  }
+
+  private static void put(SegmentMatcher<String> matcher, String originalName) {
+    matcher.put(SuggestionNode.sanitise(originalName), originalName, originalName);
+  }
+
+  private static String randomText(Random random, String alphabet, int length) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+    }
+    return builder.toString();
+  }
+
+  private static Set<String> names(String... names) {
+    return new HashSet<>(Arrays.asList(names));
+  }
+
+  private static Set<String> names(Collection<String> names) {
+    return new HashSet<>(names);
+  }
+}
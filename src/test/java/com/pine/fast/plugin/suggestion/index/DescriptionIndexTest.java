@@ -0,0 +1,122 @@
+package com.pine.fast.plugin.suggestion.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DescriptionIndexTest {
+  private DescriptionIndex index;
+
+  @BeforeEach
+  void setUp() {
+    index = new DescriptionIndex();
+    index.addProperty("base.jar", "desiredCapabilities.udid", "设备id");
+    index.addProperty("base.jar", "desiredCapabilities.platformName", "platformName配置，参数为：iOS或Android");
+    index.addSimple("base.jar", "sleep", "Pauses the script for the given number of seconds");
+    index.addSimple("base.jar", "openUrl", "Opens the url in the current window");
+    index.addSimple("base.jar", "setWindowSize", "Resizes the current window");
+    index.addSimple("base.jar", "noDescription", null);
+  }
+
+  @Test
+  void splitsHanRunsIntoBigrams() {
+    assertEquals(Arrays.asList("设备", "备标", "标识"), DescriptionIndex.tokenize("设备标识"));
+    assertEquals(Arrays.asList("设备", "id"), DescriptionIndex.tokenize("设备id"));
+    // a single Han character is kept as is
+    assertEquals(Arrays.asList("或", "android"), DescriptionIndex.tokenize("或Android"));
+  }
+
+  @Test
+  void dropsStopwordsAndSingleCharacters() {
+    assertEquals(Arrays.asList("url", "current", "window"),
+        DescriptionIndex.tokenize("Opens the url in a current window!"));
+    assertEquals(Arrays.asList("ios"), DescriptionIndex.tokenize("x iOS"));
+  }
+
+  @Test
+  void findsKeysByWhatTheyDo() {
+    assertEquals(set("desiredCapabilities.udid"), set(index.propertiesDescribedBy("设备")));
+    assertEquals(set("desiredCapabilities.platformName"), set(index.propertiesDescribedBy("参数")));
+    assertEquals(set("openUrl", "setWindowSize"), set(index.simplesDescribedBy("current window")));
+    assertEquals(set("sleep"), set(index.simplesDescribedBy("pauses")));
+  }
+
+  @Test
+  void readsTheLastQueryTokenAsAPrefix() {
+    assertEquals(set("openUrl", "setWindowSize"), set(index.simplesDescribedBy("win")));
+    assertEquals(set("openUrl", "setWindowSize"), set(index.simplesDescribedBy("current wi")));
+    // only the last token may be incomplete
+    assertTrue(index.simplesDescribedBy("curr window").isEmpty());
+  }
+
+  @Test
+  void intersectsThePostingsOfAllQueryTokens() {
+    assertEquals(set("openUrl"), set(index.simplesDescribedBy("url window")));
+    assertTrue(index.simplesDescribedBy("script window").isEmpty());
+    assertTrue(index.simplesDescribedBy("the").isEmpty());
+    assertTrue(index.simplesDescribedBy("").isEmpty());
+  }
+
+  @Test
+  void matchesChecksTheCurrentDescription() {
+    assertTrue(DescriptionIndex.matches("Opens the url in the current window", "current win"));
+    assertTrue(DescriptionIndex.matches("设备id", "设备"));
+    assertFalse(DescriptionIndex.matches("Resizes the current window", "url"));
+    assertFalse(DescriptionIndex.matches(null, "url"));
+    assertFalse(DescriptionIndex.matches("Opens the url", "the"));
+  }
+
+  @Test
+  void derivedIndexCopiesOnlyTheListsItAddsTo() {
+    DescriptionIndex derived = new DescriptionIndex(index);
+    derived.addSimple("base.jar", "closeWindow", "Closes the current window");
+
+    assertEquals(set("openUrl", "setWindowSize", "closeWindow"), set(derived.simplesDescribedBy("current window")));
+    assertEquals(set("openUrl", "setWindowSize"), set(index.simplesDescribedBy("current window")));
+    assertTrue(index.simplesDescribedBy("closes").isEmpty());
+    assertEquals(set("desiredCapabilities.udid"), set(derived.propertiesDescribedBy("设备")));
+  }
+
+  @Test
+  void keepsKeysWhoseDescriptionChanged() {
+    DescriptionIndex derived = new DescriptionIndex(index);
+    derived.addSimple("base.jar", "sleep", "Waits a while");
+
+    // a superset, callers check the current description with matches
+    assertEquals(set("sleep"), set(derived.simplesDescribedBy("pauses")));
+    assertFalse(DescriptionIndex.matches("Waits a while", "pauses"));
+    assertEquals(set("sleep"), set(derived.simplesDescribedBy("waits")));
+  }
+
+  @Test
+  void dropsTheDescriptionsOfARemovedContainer() {
+    DescriptionIndex derived = new DescriptionIndex(index);
+    derived.addSimple("custom.json", "closeWindow", "Closes the current window");
+    derived.addSimple("custom.json", "openUrl", "Opens the url in another tab");
+    derived.addProperty("custom.json", "custom.deviceid", "设备id");
+    assertEquals(set("openUrl", "setWindowSize", "closeWindow"), set(derived.simplesDescribedBy("current window")));
+
+    derived.removeContainer("custom.json");
+    assertEquals(set("openUrl", "setWindowSize"), set(derived.simplesDescribedBy("current window")));
+    // keys another container describes as well stay
+    assertEquals(set("openUrl"), set(derived.simplesDescribedBy("url")));
+    assertTrue(derived.simplesDescribedBy("closes").isEmpty());
+    assertTrue(derived.simplesDescribedBy("tab").isEmpty());
+    assertEquals(set("desiredCapabilities.udid"), set(derived.propertiesDescribedBy("设备")));
+  }
+
+  private static Set<String> set(String... values) {
+    return new HashSet<>(Arrays.asList(values));
+  }
+
+  private static Set<String> set(Collection<String> values) {
+    return new HashSet<>(values);
+  }
+}
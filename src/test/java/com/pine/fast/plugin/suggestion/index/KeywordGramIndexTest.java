@@ -0,0 +1,134 @@
+package com.pine.fast.plugin.suggestion.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataProperty;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class KeywordGramIndexTest {
+  private KeywordGramIndex index;
+
+  @BeforeEach
+  void setUp() {
+    index = new KeywordGramIndex();
+    for (String name : Arrays.asList("click", "doubleClick", "contextClick", "clear", "ifiOS", "$.getText")) {
+      index.add("base.jar", name);
+    }
+  }
+
+  @Test
+  void shortQueriesAreExact() {
+    assertEquals(names("click", "doubleClick", "contextClick"), names(index.candidatesContaining("ick")));
+    assertEquals(names("click", "doubleClick", "contextClick", "clear"), names(index.candidatesContaining("cl")));
+    assertEquals(names("$.getText"), names(index.candidatesContaining("$.")));
+  }
+
+  @Test
+  void ignoresCase() {
+    assertEquals(names("ifiOS"), names(index.candidatesContaining("IOS")));
+    assertEquals(names("doubleClick"), names(index.candidatesContaining("ECLICK")));
+  }
+
+  @Test
+  void longQueriesNeedEveryTrigram() {
+    assertEquals(names("doubleClick"), names(index.candidatesContaining("bleclick")));
+    assertTrue(index.candidatesContaining("clickx").isEmpty());
+    assertTrue(index.candidatesContaining("zzz").isEmpty());
+  }
+
+  @Test
+  void candidatesAreASupersetOfTheNamesContainingTheQuery() {
+    Random random = new Random(42);
+    String alphabet = "abcAB.";
+    KeywordGramIndex randomIndex = new KeywordGramIndex();
+    List<String> allNames = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      String name = randomText(random, alphabet, 1 + random.nextInt(10));
+      allNames.add(name);
+      randomIndex.add("base.jar", name);
+    }
+    for (int i = 0; i < 2000; i++) {
+      String query = randomText(random, alphabet, 1 + random.nextInt(6));
+      Set<String> expected = new HashSet<>();
+      for (String name : allNames) {
+        if (name.toLowerCase(Locale.ROOT).contains(query.toLowerCase(Locale.ROOT))) {
+          expected.add(name);
+        }
+      }
+      Set<String> candidates = names(randomIndex.candidatesContaining(query));
+      assertTrue(candidates.containsAll(expected), query);
+      if (query.length() <= KeywordGramIndex.MAX_GRAM) {
+        assertEquals(expected, candidates, query);
+      }
+    }
+  }
+
+  @Test
+  void derivedIndexCopiesOnlyTheListsItAddsTo() {
+    Collection<String> baseIfiPostings = index.candidatesContaining("ifi");
+    KeywordGramIndex derived = new KeywordGramIndex(index);
+    derived.add("base.jar", "rightClick");
+
+    assertEquals(names("click", "doubleClick", "contextClick", "rightClick"),
+        names(derived.candidatesContaining("click")));
+    assertEquals(names("click", "doubleClick", "contextClick"), names(index.candidatesContaining("click")));
+    assertTrue(index.candidatesContaining("rig").isEmpty());
+    assertSame(baseIfiPostings, derived.candidatesContaining("ifi"));
+  }
+
+  @Test
+  void dropsTheNamesOfARemovedContainer() {
+    KeywordGramIndex derived = new KeywordGramIndex(index);
+    derived.add("custom.json", "rightClick");
+    derived.add("custom.json", "click");
+    assertEquals(names("click", "doubleClick", "contextClick", "rightClick"),
+        names(derived.candidatesContaining("click")));
+
+    derived.removeContainer("custom.json");
+    // names another container contributes as well stay
+    assertEquals(names("click", "doubleClick", "contextClick"), names(derived.candidatesContaining("click")));
+    assertTrue(derived.candidatesContaining("rig").isEmpty());
+  }
+
+  @Test
+  void builderDropsTheNamesOfRemovedContainers() {
+    SpringConfigurationMetadataProperty simple = new SpringConfigurationMetadataProperty();
+    simple.setName("fastSwipe");
+    simple.setOriginalName("fastSwipe");
+    SuggestionIndexBuilder builder = new SuggestionIndexBuilder(null);
+    builder.consumerFor("custom.json").consumeSimple(simple);
+    SuggestionIndexBuilder derived = SuggestionIndexBuilder.derivedFrom(null, builder.toSnapshot());
+    derived.removeContainer("custom.json");
+    SearchIndexSnapshot snapshot = derived.toSnapshot();
+
+    assertTrue(snapshot.getKeywordGramIndex().candidatesContaining("swipe").isEmpty());
+    assertTrue(snapshot.getSimpleSearchIndex().isEmpty());
+  }
+
+  private static String randomText(Random random, String alphabet, int length) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+    }
+    return builder.toString();
+  }
+
+  private static Set<String> names(String... names) {
+    return new HashSet<>(Arrays.asList(names));
+  }
+
+  private static Set<String> names(Collection<String> names) {
+    return new HashSet<>(names);
+  }
+}
@@ -0,0 +1,75 @@
+package com.pine.fast.plugin.suggestion.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.pine.fast.plugin.suggestion.metadata.MetadataNonPropertySuggestionNode;
+import com.pine.fast.plugin.suggestion.metadata.MetadataSuggestionNode;
+import org.junit.jupiter.api.Test;
+
+class PathIndexTest {
+
+  @Test
+  void derivedLayersShadowTheirBaseWithoutModifyingIt() {
+    MetadataSuggestionNode port = node("port");
+    MetadataSuggestionNode ssl = node("ssl");
+    PathIndex base = new PathIndex();
+    base.put("server.port", port);
+    base.put("server.ssl", ssl);
+
+    PathIndex derived = PathIndex.derivedFrom(base);
+    MetadataSuggestionNode newPort = node("port");
+    derived.put("server.port", newPort);
+    derived.remove("server.ssl", ssl);
+
+    assertSame(newPort, derived.get("server.port"));
+    assertNull(derived.get("server.ssl"));
+    assertSame(port, base.get("server.port"));
+    assertSame(ssl, base.get("server.ssl"));
+
+    // registered again after the removal, e.g by a later expansion
+    derived.put("server.ssl", ssl);
+    assertSame(ssl, derived.get("server.ssl"));
+  }
+
+  @Test
+  void removesOnlyTheRegisteredNode() {
+    MetadataSuggestionNode port = node("port");
+    PathIndex base = new PathIndex();
+    base.put("server.port", port);
+    PathIndex derived = PathIndex.derivedFrom(base);
+
+    derived.remove("server.port", node("port"));
+    assertSame(port, derived.get("server.port"));
+  }
+
+  @Test
+  void mergesLayersAsTheyAreDerivedFrom() {
+    PathIndex index = new PathIndex();
+    for (int i = 0; i < 1000; i++) {
+      index.put("root" + i, node("root" + i));
+    }
+    MetadataSuggestionNode removed = index.get("root0");
+    for (int version = 0; version < 1000; version++) {
+      index = PathIndex.derivedFrom(index);
+      index.put("delta" + version, node("delta" + version));
+      if (version == 10) {
+        index.remove("root0", removed);
+      }
+    }
+
+    assertTrue(index.depth() <= 12, "depth " + index.depth());
+    assertNull(index.get("root0"));
+    assertNotNull(index.get("root1"));
+    for (int version = 0; version < 1000; version++) {
+      assertEquals("delta" + version, index.get("delta" + version).getName());
+    }
+  }
+
+  private static MetadataSuggestionNode node(String name) {
+    return MetadataNonPropertySuggestionNode.newInstance(name, null, "base.jar");
+  }
+}
@@ -0,0 +1,77 @@
+package com.pine.fast.plugin.suggestion.index;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.pine.fast.plugin.suggestion.metadata.io.MetadataConsumer;
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataProperty;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SearchIndexChangeTest {
+  private SearchIndexSnapshot base;
+
+  @BeforeEach
+  void setUp() {
+    SuggestionIndexBuilder builder = new SuggestionIndexBuilder(null);
+    MetadataConsumer consumer = builder.consumerFor("base.jar");
+    consumer.consumeProperty(property("server.port"));
+    consumer.consumeProperty(property("server.ssl.enabled"));
+    consumer.consumeProperty(property("spring.application.name"));
+    consumer.consumeSimple(property("version"));
+    base = builder.toSnapshot();
+  }
+
+  @Test
+  void patchAffectsOnlyTheTouchedPathItsAncestorsAndDescendants() {
+    SuggestionIndexBuilder builder = SuggestionIndexBuilder.derivedFrom(null, base);
+    builder.consumerFor("custom.json").consumeProperty(property("server.ssl.key-store"));
+    SearchIndexChange change =
+        SearchIndexChange.of(1, builder.getTouchedPaths(), builder.getTouchedSimples());
+
+    assertTrue(change.affects("server.ssl.keystore"));
+    assertTrue(change.affects("server.ssl"));
+    assertTrue(change.affects("server"));
+    assertTrue(change.affects("server.ssl.keystore.type"));
+    assertFalse(change.affects("server.ssl.enabled"));
+    assertFalse(change.affects("server.port"));
+    assertFalse(change.affects("spring.application.name"));
+    assertFalse(change.affectsSimple("version"));
+  }
+
+  @Test
+  void removalAffectsTheRemovedPaths() {
+    SuggestionIndexBuilder withCustom = SuggestionIndexBuilder.derivedFrom(null, base);
+    MetadataConsumer consumer = withCustom.consumerFor("custom.json");
+    consumer.consumeProperty(property("server.ssl.key-alias"));
+    consumer.consumeSimple(property("profile"));
+    SuggestionIndexBuilder builder = SuggestionIndexBuilder.derivedFrom(null, withCustom.toSnapshot());
+    builder.removeContainer("custom.json");
+    SearchIndexChange change =
+        SearchIndexChange.of(2, builder.getTouchedPaths(), builder.getTouchedSimples());
+
+    assertTrue(change.affects("server.ssl.keyalias"));
+    assertTrue(change.affectsSimple("profile"));
+    assertFalse(change.affects("server.port"));
+    assertFalse(change.affectsSimple("version"));
+  }
+
+  @Test
+  void rebuildAffectsEverythingBelowTheReplacedRoots() {
+    SuggestionIndexBuilder builder = SuggestionIndexBuilder.derivedFrom(null, base);
+    builder.consumerFor("custom.json").consumeProperty(property("spring.profiles.active"));
+    SearchIndexChange change = SearchIndexChange.between(3, base, builder.toSnapshot());
+
+    assertTrue(change.affects("spring.application.name"));
+    assertFalse(change.affects("server.port"));
+    assertTrue(SearchIndexChange.between(4, null, base).affects("server.port"));
+  }
+
+  private static SpringConfigurationMetadataProperty property(String name) {
+    SpringConfigurationMetadataProperty property = new SpringConfigurationMetadataProperty();
+    property.setName(name);
+    property.setOriginalName(name);
+    property.setClassName("java.lang.String");
+    return property;
+  }
+}
@@ -0,0 +1,126 @@
+package com.pine.fast.plugin.suggestion.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataProperty;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SegmentIndexTest {
+  private SegmentIndex index;
+
+  @BeforeEach
+  void setUp() {
+    index = new SegmentIndex();
+    add(index, "server.port");
+    add(index, "spring.datasource.port");
+    add(index, "spring.datasource.url");
+    add(index, "desiredCapabilities.platformName");
+    add(index, "server.ssl.key-store");
+  }
+
+  @Test
+  void findsEveryPathEndingWithTheSegment() {
+    assertEquals(paths("server.port", "spring.datasource.port"), paths(index.pathsWithSegmentMatching("port")));
+    assertEquals(paths("spring.datasource"), paths(index.pathsWithSegmentMatching("datasource")));
+  }
+
+  @Test
+  void matchesSegmentPrefixesIgnoringCase() {
+    assertEquals(paths("server.port", "spring.datasource.port"), paths(index.pathsWithSegmentMatching("po")));
+    assertEquals(paths("desiredCapabilities.platformName"),
+        paths(index.pathsWithSegmentMatching("PLATFORM")));
+  }
+
+  @Test
+  void matchesCamelHumpsAndInitialsOfTheOriginalSpelling() {
+    assertEquals(paths("desiredCapabilities.platformName"), paths(index.pathsWithSegmentMatching("pN")));
+    assertEquals(paths("server.ssl.keystore"), paths(index.pathsWithSegmentMatching("ks")));
+  }
+
+  @Test
+  void doesNotIndexRootSegments() {
+    assertTrue(index.pathsWithSegmentMatching("server").isEmpty());
+    assertTrue(index.pathsWithSegmentMatching("spring").isEmpty());
+    assertTrue(index.pathsWithSegmentMatching("missing").isEmpty());
+  }
+
+  @Test
+  void derivedIndexCopiesOnlyTheListsItAddsTo() {
+    Collection<String> baseUrlPaths = index.pathsWithSegmentMatching("url");
+    SegmentIndex derived = new SegmentIndex(index);
+    add(derived, "client.port");
+    add(derived, "client.timeout");
+
+    assertEquals(paths("server.port", "spring.datasource.port", "client.port"),
+        paths(derived.pathsWithSegmentMatching("port")));
+    assertEquals(paths("client.timeout"), paths(derived.pathsWithSegmentMatching("timeout")));
+    // the base is never modified
+    assertEquals(paths("server.port", "spring.datasource.port"), paths(index.pathsWithSegmentMatching("port")));
+    assertTrue(index.pathsWithSegmentMatching("timeout").isEmpty());
+    // untouched lists are shared, not copied
+    assertSame(baseUrlPaths, derived.pathsWithSegmentMatching("url"));
+
+    // a list the derived index copied once is modified in place afterwards
+    Collection<String> derivedPortPaths = derived.pathsWithSegmentMatching("port");
+    add(derived, "proxy.port");
+    assertSame(derivedPortPaths, derived.pathsWithSegmentMatching("port"));
+    assertTrue(derivedPortPaths.contains("proxy.port"));
+  }
+
+  @Test
+  void dropsThePathsOfARemovedContainer() {
+    SegmentIndex derived = new SegmentIndex(index);
+    derived.addPath("custom.json", SuggestionIndexBuilder.toSanitizedPathSegments("custom.port"),
+        SuggestionIndexBuilder.toRawPathSegments("custom.port"));
+    derived.addPath("custom.json", SuggestionIndexBuilder.toSanitizedPathSegments("server.port"),
+        SuggestionIndexBuilder.toRawPathSegments("server.port"));
+    assertEquals(paths("server.port", "spring.datasource.port", "custom.port"),
+        paths(derived.pathsWithSegmentMatching("port")));
+
+    derived.removeContainer("custom.json");
+    // paths another container contributes as well stay
+    assertEquals(paths("server.port", "spring.datasource.port"), paths(derived.pathsWithSegmentMatching("port")));
+  }
+
+  @Test
+  void builderDropsThePathsOfRemovedContainers() {
+    SuggestionIndexBuilder builder = new SuggestionIndexBuilder(null);
+    builder.consumerFor("base.jar").consumeProperty(property("server.port"));
+    builder.consumerFor("custom.json").consumeProperty(property("custom.port"));
+    SuggestionIndexBuilder derived = SuggestionIndexBuilder.derivedFrom(null, builder.toSnapshot());
+    derived.removeContainer("custom.json");
+    SearchIndexSnapshot snapshot = derived.toSnapshot();
+
+    assertEquals(paths("server.port"), paths(snapshot.getSegmentIndex().pathsWithSegmentMatching("port")));
+    assertNull(snapshot.getRootSearchIndex().get("custom"));
+  }
+
+  private static void add(SegmentIndex index, String name) {
+    index.addPath("base.jar", SuggestionIndexBuilder.toSanitizedPathSegments(name),
+        SuggestionIndexBuilder.toRawPathSegments(name));
+  }
+
+  private static SpringConfigurationMetadataProperty property(String name) {
+    SpringConfigurationMetadataProperty property = new SpringConfigurationMetadataProperty();
+    property.setName(name);
+    property.setOriginalName(name);
+    property.setClassName("java.lang.String");
+    return property;
+  }
+
+  private static Set<String> paths(String... paths) {
+    return new HashSet<>(Arrays.asList(paths));
+  }
+
+  private static Set<String> paths(Collection<String> paths) {
+    return new HashSet<>(paths);
+  }
+}
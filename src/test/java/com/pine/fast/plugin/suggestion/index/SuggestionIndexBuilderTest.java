@@ -0,0 +1,107 @@
+package com.pine.fast.plugin.suggestion.index;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.pine.fast.plugin.suggestion.metadata.MetadataNonPropertySuggestionNode;
+import com.pine.fast.plugin.suggestion.metadata.MetadataSuggestionNode;
+import com.pine.fast.plugin.suggestion.metadata.io.MetadataConsumer;
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataProperty;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SuggestionIndexBuilderTest {
+  private SearchIndexSnapshot base;
+
+  @BeforeEach
+  void setUp() {
+    SuggestionIndexBuilder builder = new SuggestionIndexBuilder(null);
+    MetadataConsumer consumer = builder.consumerFor("base.jar");
+    consumer.consumeProperty(property("server.port"));
+    consumer.consumeProperty(property("server.ssl.enabled"));
+    consumer.consumeProperty(property("server.compression.enabled"));
+    consumer.consumeProperty(property("spring.application.name"));
+    base = builder.toSnapshot();
+  }
+
+  @Test
+  void patchCopiesOnlyTheNodesAlongItsPath() {
+    MetadataSuggestionNode baseServer = base.getRootSearchIndex().get("server");
+    SuggestionIndexBuilder builder = SuggestionIndexBuilder.derivedFrom(null, base);
+    builder.consumerFor("custom.json").consumeProperty(property("server.ssl.key-store"));
+    SearchIndexSnapshot next = builder.toSnapshot();
+
+    MetadataSuggestionNode server = next.getRootSearchIndex().get("server");
+    assertNotSame(baseServer, server);
+    assertSame(base.getRootSearchIndex().get("spring"), next.getRootSearchIndex().get("spring"));
+    assertNotSame(child(baseServer, "ssl"), child(server, "ssl"));
+    assertNotNull(child(child(server, "ssl"), "keystore"));
+    assertSame(child(child(baseServer, "ssl"), "enabled"), child(child(server, "ssl"), "enabled"));
+    // the base is never modified
+    assertNull(child(child(baseServer, "ssl"), "keystore"));
+
+    // siblings off the path are shared & stay unexpanded
+    assertSame(child(baseServer, "port"), child(server, "port"));
+    MetadataNonPropertySuggestionNode compression = (MetadataNonPropertySuggestionNode) child(server, "compression");
+    assertSame(child(baseServer, "compression"), compression);
+    assertNotNull(compression.getPendingExpansion());
+  }
+
+  @Test
+  void removalCopiesOnlyTheNodesAlongTheRemovedPaths() {
+    SuggestionIndexBuilder withCustom = SuggestionIndexBuilder.derivedFrom(null, base);
+    withCustom.consumerFor("custom.json").consumeProperty(property("server.ssl.key-alias"));
+    SearchIndexSnapshot patched = withCustom.toSnapshot();
+    MetadataSuggestionNode patchedServer = patched.getRootSearchIndex().get("server");
+    MetadataSuggestionNode patchedKeyAlias = child(child(patchedServer, "ssl"), "keyalias");
+    assertNotNull(patchedKeyAlias);
+
+    SuggestionIndexBuilder builder = SuggestionIndexBuilder.derivedFrom(null, patched);
+    builder.removeContainer("custom.json");
+    SearchIndexSnapshot next = builder.toSnapshot();
+
+    MetadataSuggestionNode server = next.getRootSearchIndex().get("server");
+    assertNull(child(child(server, "ssl"), "keyalias"));
+    assertSame(child(child(patchedServer, "ssl"), "enabled"), child(child(server, "ssl"), "enabled"));
+    assertSame(child(patchedServer, "port"), child(server, "port"));
+    assertFalse(server.getBelongsTo().contains("custom.json"));
+    // the patched version still has the key & still belongs to the removed container
+    assertSame(patchedKeyAlias, child(child(patchedServer, "ssl"), "keyalias"));
+    assertTrue(patchedServer.getBelongsTo().contains("custom.json"));
+    assertTrue(patchedKeyAlias.getBelongsTo().contains("custom.json"));
+  }
+
+  @Test
+  void derivedBuilderSharesTheTriesItLeavesAlone() {
+    SuggestionIndexBuilder builder = SuggestionIndexBuilder.derivedFrom(null, base);
+    builder.consumerFor("custom.json").consumeSimple(property("version"));
+    SearchIndexSnapshot next = builder.toSnapshot();
+
+    assertSame(base.getRootSearchIndex(), next.getRootSearchIndex());
+    assertSame(base.getRootMatcher(), next.getRootMatcher());
+    assertNotSame(base.getSimpleSearchIndex(), next.getSimpleSearchIndex());
+    assertNotNull(next.getSimpleSearchIndex().get("version"));
+    assertNull(base.getSimpleSearchIndex().get("version"));
+    assertSame(base.getPathIndex().get("server"), next.getPathIndex().get("server"));
+  }
+
+  private static MetadataSuggestionNode child(MetadataSuggestionNode node, String name) {
+    MetadataNonPropertySuggestionNode group = (MetadataNonPropertySuggestionNode) node;
+    group.expandPendingChildren();
+    Map<String, MetadataSuggestionNode> childLookup = group.getChildLookup();
+    return childLookup != null ? childLookup.get(name) : null;
+  }
+
+  private static SpringConfigurationMetadataProperty property(String name) {
+    SpringConfigurationMetadataProperty property = new SpringConfigurationMetadataProperty();
+    property.setName(name);
+    property.setOriginalName(name);
+    property.setClassName("java.lang.String");
+    return property;
+  }
+}
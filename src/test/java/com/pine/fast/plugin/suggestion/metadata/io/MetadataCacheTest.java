@@ -0,0 +1,85 @@
+package com.pine.fast.plugin.suggestion.metadata.io;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataHint;
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataProperty;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MetadataCacheTest {
+  private static final byte[] JSON = ("{\"properties\": ["
+      + "{\"name\": \"server.port\", \"type\": \"java.lang.Integer\", \"defaultValue\": 8080},"
+      + "{\"name\": \"server.address\", \"type\": \"java.lang.String\", \"description\": \"Bind address\"}],"
+      + "\"hints\": [{\"name\": \"server.port\", \"values\": [{\"value\": 8080, \"description\": \"Default\"}]}],"
+      + "\"simples\": [{\"name\": \"version\", \"type\": \"java.lang.String\", \"description\": \"Bind address\"}]}")
+      .getBytes(UTF_8);
+
+  @TempDir
+  File cacheDir;
+
+  @Test
+  void storesAMissAndMapsItBackOnEveryLoad() throws IOException {
+    MetadataCache cache = new MetadataCache(cacheDir);
+
+    ByteBuffer miss = cache.load(JSON);
+    assertEquals(1, cacheDir.listFiles().length);
+    assertTrue(miss instanceof MappedByteBuffer);
+    assertEquals(Arrays.asList("property server.port", "property server.address", "hint server.port",
+        "simple version"), read(miss));
+    assertEquals(read(miss), read(cache.load(JSON)));
+  }
+
+  @Test
+  void writerKeepsTheConsumptionOrderOfEachKind() throws IOException {
+    BinaryMetadataWriter writer = new BinaryMetadataWriter();
+    writer.consumeSimple(property("version"));
+    writer.consumeProperty(property("server.port"));
+    writer.consumeSimple(property("profile"));
+    writer.consumeProperty(property("server.address"));
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    writer.writeTo(bytes);
+
+    assertEquals(Arrays.asList("property server.port", "property server.address", "simple version",
+        "simple profile"), read(ByteBuffer.wrap(bytes.toByteArray())));
+  }
+
+  private static List<String> read(ByteBuffer buffer) {
+    List<String> consumed = new ArrayList<>();
+    BinaryMetadataReader.read(buffer, new MetadataConsumer() {
+      @Override
+      public void consumeProperty(SpringConfigurationMetadataProperty property) {
+        consumed.add("property " + property.getName());
+      }
+
+      @Override
+      public void consumeHint(SpringConfigurationMetadataHint hint) {
+        consumed.add("hint " + hint.getName());
+      }
+
+      @Override
+      public void consumeSimple(SpringConfigurationMetadataProperty simple) {
+        consumed.add("simple " + simple.getName());
+      }
+    });
+    return consumed;
+  }
+
+  private static SpringConfigurationMetadataProperty property(String name) {
+    SpringConfigurationMetadataProperty property = new SpringConfigurationMetadataProperty();
+    property.setName(name);
+    property.setClassName("java.lang.String");
+    property.setDescription("Bind address");
+    return property;
+  }
+}
@@ -0,0 +1,23 @@
+package com.pine.fast.plugin.suggestion.metadata.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+
+class MetadataPackTest {
+
+  @Test
+  void capabilitiesNeedTheAppiumMacacaPack() {
+    assertEquals(MetadataPack.APPIUM_MACACA,
+        MetadataPack.frameworkOf(Arrays.asList("module", "desiredCapabilities", "steps")));
+  }
+
+  @Test
+  void plainSeleniumScriptNeedsTheSeleniumPack() {
+    assertEquals(MetadataPack.SELENIUM, MetadataPack.frameworkOf(Arrays.asList("module", "description", "steps")));
+    assertEquals(MetadataPack.SELENIUM, MetadataPack.frameworkOf(Collections.emptyList()));
+  }
+
+}
@@ -0,0 +1,102 @@
+package com.pine.fast.plugin.suggestion.service;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.pine.fast.plugin.suggestion.Suggestion;
+import com.pine.fast.plugin.suggestion.completion.FileType;
+import com.pine.fast.plugin.suggestion.index.SearchIndexSnapshot;
+import com.pine.fast.plugin.suggestion.index.SuggestionIndexBuilder;
+import com.pine.fast.plugin.suggestion.metadata.io.MetadataConsumer;
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataProperty;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DeepKeySearchTest {
+  private SearchIndexSnapshot snapshot;
+
+  @BeforeEach
+  void setUp() {
+    SuggestionIndexBuilder builder = new SuggestionIndexBuilder(null);
+    MetadataConsumer consumer = builder.consumerFor("base.jar");
+    consumer.consumeProperty(property("server.port"));
+    consumer.consumeProperty(property("spring.datasource.port"));
+    consumer.consumeProperty(property("spring.datasource.url"));
+    builder.consumerFor("custom.json").consumeProperty(property("custom.port"));
+    snapshot = builder.toSnapshot();
+  }
+
+  @Test
+  void findsDeepKeysByTheirLastSegment() {
+    assertEquals(keys("server.port", "spring.datasource.port", "custom.port"), search(snapshot, "port"));
+    assertEquals(keys("spring.datasource.url"), search(snapshot, "datasource", "u"));
+  }
+
+  @Test
+  void skipsPathsThatNoLongerExist() {
+    SuggestionIndexBuilder builder = SuggestionIndexBuilder.derivedFrom(null, snapshot);
+    builder.removeContainer("custom.json");
+    SearchIndexSnapshot next = builder.toSnapshot();
+
+    assertEquals(keys("server.port", "spring.datasource.port"), search(next, "port"));
+    assertNull(DeepKeySearch.resolve(next, "custom.port"));
+    // the previous version is unaffected
+    assertEquals(keys("server.port", "spring.datasource.port", "custom.port"), search(snapshot, "port"));
+  }
+
+  @Test
+  void skipsExcludedRoots() {
+    Set<String> keys = keys(DeepKeySearch.search(null, FileType.YAML, snapshot, new String[] {"port"},
+        singleton(snapshot.getRootSearchIndex().get("spring"))));
+    assertEquals(keys("server.port", "custom.port"), keys);
+  }
+
+  @Test
+  void searchesManyCandidatesInParallel() {
+    SuggestionIndexBuilder builder = new SuggestionIndexBuilder(null);
+    MetadataConsumer consumer = builder.consumerFor("base.jar");
+    Set<String> expected = new TreeSet<>();
+    for (int i = 0; i < ParallelKeySearch.THRESHOLD * 2; i++) {
+      consumer.consumeProperty(property("group" + i + ".feature.enabled"));
+      expected.add("group" + i + ".feature.enabled");
+    }
+    // fast.enabled shadows fast.deep.enabled, even if the two are searched by different batches
+    consumer.consumeProperty(property("fast.enabled"));
+    consumer.consumeProperty(property("fast.deep.enabled"));
+    expected.add("fast.enabled");
+
+    assertEquals(expected, search(builder.toSnapshot(), "enabled"));
+  }
+
+  @Test
+  void returnsNullWithoutCandidates() {
+    assertNull(DeepKeySearch.search(null, FileType.YAML, snapshot, new String[] {"missing"}, emptySet()));
+  }
+
+  private static Set<String> search(SearchIndexSnapshot snapshot, String... querySegmentPrefixes) {
+    return keys(DeepKeySearch.search(null, FileType.YAML, snapshot, querySegmentPrefixes, emptySet()));
+  }
+
+  private static Set<String> keys(Set<Suggestion> suggestions) {
+    Set<String> keys = new TreeSet<>();
+    suggestions.forEach(suggestion -> keys.add(suggestion.getSuggestionToDisplay()));
+    return keys;
+  }
+
+  private static Set<String> keys(String... keys) {
+    return new TreeSet<>(Arrays.asList(keys));
+  }
+
+  private static SpringConfigurationMetadataProperty property(String name) {
+    SpringConfigurationMetadataProperty property = new SpringConfigurationMetadataProperty();
+    property.setName(name);
+    property.setOriginalName(name);
+    property.setClassName("java.lang.String");
+    return property;
+  }
+}
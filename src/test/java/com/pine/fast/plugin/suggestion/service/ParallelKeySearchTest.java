@@ -0,0 +1,64 @@
+package com.pine.fast.plugin.suggestion.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class ParallelKeySearchTest {
+
+  @Test
+  void searchesFewItemsInOneBatchOnTheCallingThread() {
+    List<Integer> items = range(ParallelKeySearch.THRESHOLD - 1);
+    ConcurrentLinkedQueue<Thread> batchThreads = new ConcurrentLinkedQueue<>();
+    List<Integer> found = ParallelKeySearch.search(items, batch -> {
+      batchThreads.add(Thread.currentThread());
+      return new ArrayList<>(batch);
+    }, ParallelKeySearchTest::concat);
+
+    assertEquals(items, found);
+    assertEquals(1, batchThreads.size());
+    assertSame(Thread.currentThread(), batchThreads.peek());
+  }
+
+  @Test
+  void splitsManyItemsIntoBatchesAndMergesTheirResults() {
+    List<Integer> items = range(ParallelKeySearch.THRESHOLD * 4);
+    ConcurrentLinkedQueue<Collection<Integer>> batches = new ConcurrentLinkedQueue<>();
+    List<Integer> found = ParallelKeySearch.search(items, batch -> {
+      batches.add(new ArrayList<>(batch));
+      // batches that find nothing return null
+      List<Integer> even = batch.stream().filter(item -> item % 2 == 0).collect(Collectors.toList());
+      return even.isEmpty() ? null : even;
+    }, ParallelKeySearchTest::concat);
+
+    assertTrue(batches.size() > 1);
+    assertEquals(items.size(), batches.stream().mapToInt(Collection::size).sum());
+    assertEquals(items.stream().filter(item -> item % 2 == 0).collect(Collectors.toList()),
+        found.stream().sorted().collect(Collectors.toList()));
+  }
+
+  @Test
+  void returnsNullIfNoBatchFoundAnything() {
+    assertNull(ParallelKeySearch.search(range(ParallelKeySearch.THRESHOLD * 4), batch -> null,
+        ParallelKeySearchTest::concat));
+    assertNull(ParallelKeySearch.search(range(ParallelKeySearch.THRESHOLD * 4), batch -> null));
+  }
+
+  private static List<Integer> range(int size) {
+    return IntStream.range(0, size).boxed().collect(Collectors.toList());
+  }
+
+  private static List<Integer> concat(List<Integer> left, List<Integer> right) {
+    left.addAll(right);
+    return left;
+  }
+}
@@ -0,0 +1,195 @@
+package com.pine.fast.plugin.suggestion.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.pine.fast.plugin.suggestion.SuggestionNode;
+import com.pine.fast.plugin.suggestion.index.SearchIndexSnapshot;
+import com.pine.fast.plugin.suggestion.index.SuggestionIndexBuilder;
+import com.pine.fast.plugin.suggestion.metadata.io.MetadataConsumer;
+import com.pine.fast.plugin.suggestion.metadata.json.SpringConfigurationMetadataProperty;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 索引层的并发压力测试，不依赖 IntelliJ 测试框架：多个线程不断解析路径，同时一个线程交替发布两组自定义元数据。每次解析的结果必须与被解析的那一版本一致
+ * <p>
+ * Published snapshots share roots with their predecessors & expand their nodes lazily, so readers race each other
+ * expanding the same nodes while the writer copies & patches the roots they are reading
+ */
+class SearchIndexConcurrencyTest {
+
+  private static final int READER_THREADS = 8;
+  private static final int PATCHES = 300;
+  private static final long TIMEOUT_SECONDS = 60;
+
+  private static final String BASE_CONTAINER = "base.jar";
+  private static final String CUSTOM_CONTAINER = "custom.json";
+
+  private static final List<String> BASE_PROPERTIES = new ArrayList<>();
+  private static final List<String> CUSTOM_A =
+      Arrays.asList("fast.server.port", "fast.server.ssl.key-store", "fast.client.retry.count", "custom.a.enabled");
+  private static final List<String> CUSTOM_B =
+      Arrays.asList("fast.server.host", "fast.client.timeout", "fast.client.retry.backoff", "custom.b.enabled");
+
+  static {
+    for (int root = 0; root < 5; root++) {
+      for (int group = 0; group < 10; group++) {
+        for (int leaf = 0; leaf < 10; leaf++) {
+          BASE_PROPERTIES.add("root" + root + ".group" + group + ".leaf" + leaf);
+        }
+      }
+    }
+    for (int group = 0; group < 20; group++) {
+      BASE_PROPERTIES.add("fast.server.group" + group + ".enabled");
+      BASE_PROPERTIES.add("fast.client.group" + group + ".enabled");
+    }
+  }
+
+  private ExecutorService executor;
+
+  @AfterEach
+  void tearDown() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void resolvesAgainstTheCapturedVersionWhilePatchesArePublished() throws Exception {
+    SuggestionIndexBuilder baseBuilder = new SuggestionIndexBuilder(null);
+    MetadataConsumer baseConsumer = baseBuilder.consumerFor(BASE_CONTAINER);
+    BASE_PROPERTIES.forEach(name -> baseConsumer.consumeProperty(property(name)));
+    SearchIndexSnapshot base = baseBuilder.toSnapshot();
+
+    Set<String> universe = new TreeSet<>(pathsOf(BASE_PROPERTIES));
+    universe.addAll(pathsOf(CUSTOM_A));
+    universe.addAll(pathsOf(CUSTOM_B));
+    List<String> queries = new ArrayList<>(universe);
+    queries.add("fast.server.missing");
+    queries.add("missing");
+
+    // snapshot -> paths that exist in it, registered before the snapshot is published
+    Map<SearchIndexSnapshot, Set<String>> expectedPaths = Collections.synchronizedMap(new IdentityHashMap<>());
+    expectedPaths.put(base, pathsOf(BASE_PROPERTIES));
+    AtomicReference<SearchIndexSnapshot> published = new AtomicReference<>(base);
+
+    executor = Executors.newFixedThreadPool(READER_THREADS + 1);
+    AtomicBoolean patching = new AtomicBoolean(true);
+    CountDownLatch start = new CountDownLatch(1);
+    ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+    List<Future<Integer>> readers = new ArrayList<>();
+    for (int i = 0; i < READER_THREADS; i++) {
+      readers.add(executor.submit(() -> {
+        start.await();
+        int resolved = 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (patching.get()) {
+          SearchIndexSnapshot snapshot = published.get();
+          Set<String> expected = expectedPaths.get(snapshot);
+          for (int j = 0; j < 50; j++) {
+            String path = queries.get(random.nextInt(queries.size()));
+            List<SuggestionNode> nodesFromRoot = DeepKeySearch.resolve(snapshot, path);
+            String actual = nodesFromRoot == null ? null : joinNames(nodesFromRoot);
+            String wanted = expected.contains(path) ? path : null;
+            if (!String.valueOf(wanted).equals(String.valueOf(actual))) {
+              failures.add("version " + snapshot.getVersion() + " resolved " + path + " to " + actual);
+            }
+            resolved++;
+          }
+        }
+        return resolved;
+      }));
+    }
+
+    Future<?> writer = executor.submit(() -> {
+      start.await();
+      SearchIndexSnapshot current = base;
+      for (int i = 0; i < PATCHES; i++) {
+        List<String> custom = i % 2 == 0 ? CUSTOM_A : CUSTOM_B;
+        SuggestionIndexBuilder builder = SuggestionIndexBuilder.derivedFrom(null, current);
+        builder.removeContainer(CUSTOM_CONTAINER);
+        MetadataConsumer consumer = builder.consumerFor(CUSTOM_CONTAINER);
+        custom.forEach(name -> consumer.consumeProperty(property(name)));
+        current = builder.toSnapshot();
+
+        Set<String> expected = pathsOf(BASE_PROPERTIES);
+        expected.addAll(pathsOf(custom));
+        expectedPaths.put(current, expected);
+        published.set(current);
+      }
+      return null;
+    });
+
+    start.countDown();
+    try {
+      writer.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } finally {
+      patching.set(false);
+    }
+    int resolved = 0;
+    for (Future<Integer> reader : readers) {
+      resolved += reader.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    assertTrue(failures.isEmpty(), () -> failures.size() + " wrong resolutions, e.g " + failures.peek());
+    assertTrue(resolved > 0);
+    // after the race, every path still resolves exactly as in a snapshot nobody raced on
+    SearchIndexSnapshot last = published.get();
+    for (String path : queries) {
+      List<SuggestionNode> nodesFromRoot = DeepKeySearch.resolve(last, path);
+      assertEquals(expectedPaths.get(last).contains(path) ? path : null,
+          nodesFromRoot == null ? null : joinNames(nodesFromRoot));
+    }
+  }
+
+  /**
+   * @return sanitised paths of the properties & every group above them
+   */
+  private static Set<String> pathsOf(List<String> propertyNames) {
+    Set<String> paths = new TreeSet<>();
+    for (String name : propertyNames) {
+      String[] segments = SuggestionIndexBuilder.toSanitizedPathSegments(name);
+      for (int i = 1; i <= segments.length; i++) {
+        paths.add(SuggestionIndexBuilder.toPathKey(segments, i));
+      }
+    }
+    return paths;
+  }
+
+  private static String joinNames(List<SuggestionNode> nodesFromRoot) {
+    StringBuilder builder = new StringBuilder();
+    for (SuggestionNode node : nodesFromRoot) {
+      if (builder.length() != 0) {
+        builder.append('.');
+      }
+      builder.append(node.getName());
+    }
+    return builder.toString();
+  }
+
+  private static SpringConfigurationMetadataProperty property(String name) {
+    SpringConfigurationMetadataProperty property = new SpringConfigurationMetadataProperty();
+    property.setName(name);
+    property.setOriginalName(name);
+    property.setClassName("java.lang.String");
+    return property;
+  }
+}
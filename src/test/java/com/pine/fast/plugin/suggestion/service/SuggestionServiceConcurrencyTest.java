@@ -0,0 +1,205 @@
+package com.pine.fast.plugin.suggestion.service;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.intellij.codeInsight.lookup.LookupElementBuilder;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.psi.PsiFile;
+import com.intellij.testFramework.EdtTestUtil;
+import com.intellij.testFramework.LightProjectDescriptor;
+import com.intellij.testFramework.fixtures.CodeInsightTestFixture;
+import com.intellij.testFramework.fixtures.IdeaProjectTestFixture;
+import com.intellij.testFramework.fixtures.IdeaTestFixtureFactory;
+import com.intellij.testFramework.fixtures.TestFixtureBuilder;
+import com.pine.fast.plugin.suggestion.completion.FileType;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 并发压力测试：多个线程同时补全，同时不断重新加载自定义元数据。每次查询的结果必须与单线程下某一版本元数据的结果一致
+ */
+class SuggestionServiceConcurrencyTest {
+
+  private static final int SEARCH_THREADS = 8;
+  private static final int SEARCHES_PER_THREAD = 500;
+  private static final int RELOADS = 100;
+  private static final long TIMEOUT_SECONDS = 60;
+
+  private static final List<String> QUERIES =
+      Arrays.asList("fast", "fast.server", "fast.server.p", "fast.client", "port", "host", "timeout", "fastClick",
+          "fastSwipe", "fastS", "click", "zzz");
+
+  private static final String METADATA_A = "{\"properties\": ["
+      + "{\"name\": \"fast.server.port\", \"type\": \"java.lang.Integer\", \"description\": \"port\"},"
+      + "{\"name\": \"fast.server.host\", \"type\": \"java.lang.String\"}],"
+      + "\"simples\": [{\"name\": \"fastClick\", \"type\": \"selenium\"}]}";
+  private static final String METADATA_B = "{\"properties\": ["
+      + "{\"name\": \"fast.server.port\", \"type\": \"java.lang.Integer\", \"description\": \"port\"},"
+      + "{\"name\": \"fast.client.timeout\", \"type\": \"java.lang.Long\"}],"
+      + "\"simples\": [{\"name\": \"fastSwipe\", \"type\": \"selenium\"}]}";
+
+  private CodeInsightTestFixture fixture;
+  private Project project;
+  private Module module;
+  private PsiFile file;
+  private Path metadataFile;
+  private final List<SuggestionServiceImpl> services = new ArrayList<>();
+  private ExecutorService executor;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    IdeaTestFixtureFactory factory = IdeaTestFixtureFactory.getFixtureFactory();
+    TestFixtureBuilder<IdeaProjectTestFixture> builder =
+        factory.createLightFixtureBuilder(LightProjectDescriptor.EMPTY_PROJECT_DESCRIPTOR);
+    fixture = factory.createCodeInsightFixture(builder.getFixture());
+    EdtTestUtil.runInEdtAndWait(() -> {
+      fixture.setUp();
+      file = fixture.configureByText("script.yaml", "name: test\n");
+    });
+    project = fixture.getProject();
+    module = fixture.getModule();
+    metadataFile = Files.createTempFile("fast-yaml-metadata", ".json");
+    executor = Executors.newFixedThreadPool(SEARCH_THREADS + 1);
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    executor.shutdownNow();
+    services.forEach(Disposer::dispose);
+    Files.deleteIfExists(metadataFile);
+    EdtTestUtil.runInEdtAndWait(() -> fixture.tearDown());
+  }
+
+  @Test
+  void concurrentFirstSearchesShareOneBuild() throws Exception {
+    Map<String, List<String>> oracle = searchAll(newService());
+
+    SuggestionServiceImpl service = newService();
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<Map<String, List<String>>>> futures = new ArrayList<>();
+    for (int i = 0; i < SEARCH_THREADS; i++) {
+      futures.add(executor.submit(() -> {
+        start.await();
+        return searchAll(service);
+      }));
+    }
+    start.countDown();
+
+    for (Future<Map<String, List<String>>> future : futures) {
+      // a search that got ahead of the build would see no or partial results
+      assertEquals(oracle, future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+    assertEquals(1, service.getBuildCount());
+  }
+
+  @Test
+  void searchesDuringReloadsMatchSingleThreadedOracle() throws Exception {
+    SuggestionServiceImpl oracleService = newService();
+    Map<String, List<String>> oracleA = searchAfterLoading(oracleService, METADATA_A);
+    Map<String, List<String>> oracleB = searchAfterLoading(oracleService, METADATA_B);
+    assertNotEquals(oracleA, oracleB, "versions must be told apart by the queries");
+    // patching back & forth ends up where a fresh build does
+    assertEquals(oracleA, searchAfterLoading(oracleService, METADATA_A));
+
+    SuggestionServiceImpl service = newService();
+    assertEquals(oracleA, searchAfterLoading(service, METADATA_A));
+
+    AtomicBoolean reloading = new AtomicBoolean(true);
+    List<Future<?>> futures = new ArrayList<>();
+    futures.add(executor.submit((Callable<Void>) () -> {
+      try {
+        for (int i = 0; i < RELOADS; i++) {
+          load(service, i % 2 == 0 ? METADATA_B : METADATA_A);
+        }
+      } finally {
+        reloading.set(false);
+      }
+      return null;
+    }));
+    for (int i = 0; i < SEARCH_THREADS; i++) {
+      futures.add(executor.submit((Callable<Void>) () -> {
+        for (int j = 0; j < SEARCHES_PER_THREAD || reloading.get(); j++) {
+          String query = QUERIES.get(ThreadLocalRandom.current().nextInt(QUERIES.size()));
+          List<String> result = search(service, query);
+          assertTrue(result.equals(oracleA.get(query)) || result.equals(oracleB.get(query)),
+              () -> query + " -> " + result + " matches neither " + oracleA.get(query) + " nor " + oracleB
+                  .get(query));
+        }
+        return null;
+      }));
+    }
+    for (Future<?> future : futures) {
+      // rethrows whatever the thread failed with
+      future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    // RELOADS is even, so the last reload restored METADATA_A
+    assertEquals(oracleA, searchAll(service));
+    assertEquals(1, service.getBuildCount());
+  }
+
+  private SuggestionServiceImpl newService() {
+    SuggestionServiceImpl service = new SuggestionServiceImpl(project);
+    services.add(service);
+    return service;
+  }
+
+  private Map<String, List<String>> searchAfterLoading(SuggestionServiceImpl service, String metadata)
+      throws IOException {
+    load(service, metadata);
+    return searchAll(service);
+  }
+
+  /**
+   * Builds the index if it is not built yet, patches it otherwise. Returns once the new version is published
+   */
+  private void load(SuggestionServiceImpl service, String metadata) throws IOException {
+    Files.write(metadataFile, metadata.getBytes(UTF_8));
+    service.loadCustomMetadata(project, singletonList(metadataFile.toString()));
+  }
+
+  private Map<String, List<String>> searchAll(SuggestionServiceImpl service) {
+    Map<String, List<String>> queryToResult = new LinkedHashMap<>();
+    for (String query : QUERIES) {
+      queryToResult.put(query, search(service, query));
+    }
+    return queryToResult;
+  }
+
+  /**
+   * @return lookup strings in a stable order, the service returns them in no particular order
+   */
+  private List<String> search(SuggestionServiceImpl service, String query) {
+    List<LookupElementBuilder> suggestions = ReadAction.compute(() -> service
+        .findSuggestionsForQueryPrefix(project, module, FileType.YAML, file, null, query, query, null));
+    return suggestions == null ? emptyList()
+        : suggestions.stream().map(LookupElementBuilder::getLookupString).sorted().collect(toList());
+  }
+
+}
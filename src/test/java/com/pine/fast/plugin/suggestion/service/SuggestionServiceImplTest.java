@@ -42,7 +42,7 @@ class SuggestionServiceImplTest {
   class SuggestionServiceImpl
       extends com.pine.fast.plugin.suggestion.service.SuggestionServiceImpl {
     SuggestionServiceImpl(Project project) {
-      super();
+      super(project);
     }
   }
 }